@@ -0,0 +1,104 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of decrypting one short message under many keys, one
+ *  Machine per key against one MachineBatch lane per key.  Times are per
+ *  batch of keys.
+ *  @author Vedant Bhatter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    /** Number of keys. */
+    @Param({ "64", "4096" })
+    public int keys;
+
+    /** Characters per message. */
+    @Param({ "64" })
+    public int msgLength;
+
+    /** Build the machines, the batch and the message. */
+    @Setup
+    public void setUp() {
+        int numRotors = 5, pawls = 3;
+        RotorCatalog catalog = BenchConfig.catalog(26, numRotors, pawls);
+        String[] rotors = BenchConfig.rotorNames(numRotors, pawls);
+        Random random = new Random(BenchConfig.SEED);
+        _settings = new int[keys][numRotors - 1];
+        _machines = new Machine[keys];
+        _batch = new MachineBatch(catalog, rotors, keys);
+        for (int k = 0; k < keys; k += 1) {
+            for (int j = 0; j < numRotors - 1; j += 1) {
+                _settings[k][j] = random.nextInt(26);
+            }
+            _machines[k] = catalog.newMachine();
+            _machines[k].insertRotors(rotors);
+            _machines[k].setPlugboard(
+                new Permutation("", catalog.alphabet()));
+        }
+        _msg = new int[msgLength];
+        for (int i = 0; i < msgLength; i += 1) {
+            _msg[i] = random.nextInt(26);
+        }
+        _out = new int[keys * msgLength];
+    }
+
+    /** Decrypt the message once per key, one Machine at a time. */
+    @Benchmark
+    public int machines() {
+        int acc = 0;
+        for (int k = 0; k < keys; k += 1) {
+            Machine m = _machines[k];
+            m.setRotors(_settings[k]);
+            for (int c : _msg) {
+                acc += m.convert(c);
+            }
+        }
+        return acc;
+    }
+
+    /** Decrypt the message under every key at once. */
+    @Benchmark
+    public int batch() {
+        for (int k = 0; k < keys; k += 1) {
+            _batch.setRotors(k, _settings[k]);
+        }
+        _batch.convert(_msg, 0, msgLength, _out);
+        return _out[_out.length - 1];
+    }
+
+    /** Start setting of each key. */
+    private int[][] _settings;
+
+    /** One machine per key. */
+    private Machine[] _machines;
+
+    /** One lane per key. */
+    private MachineBatch _batch;
+
+    /** Message to decrypt, as indices. */
+    private int[] _msg;
+
+    /** Output of the batch. */
+    private int[] _out;
+
+}
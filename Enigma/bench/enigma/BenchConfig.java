@@ -0,0 +1,135 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** Synthetic alphabets, rotors, machines and messages for the
+ *  benchmarks.  Everything is generated from a fixed seed, so that runs
+ *  are comparable.
+ *  @author Vedant Bhatter
+ */
+final class BenchConfig {
+
+    /** Not instantiable. */
+    private BenchConfig() {
+    }
+
+    /** Seed for all generated data. */
+    static final long SEED = 0x5eed;
+
+    /** Return an alphabet of SIZE printable characters, none of which is
+     *  blank, '*', '(' or ')'.  The first 26 are the upper-case letters. */
+    static Alphabet alphabet(int size) {
+        StringBuilder chars = new StringBuilder();
+        for (char c = 'A'; c <= 'Z' && chars.length() < size; c += 1) {
+            chars.append(c);
+        }
+        for (char c = '!'; chars.length() < size; c += 1) {
+            if (c >= 'A' && c <= 'Z' || c == '*' || c == '(' || c == ')'
+                || Character.isWhitespace(c) || Character.isISOControl(c)
+                || Character.isSpaceChar(c)) {
+                continue;
+            }
+            chars.append(c);
+        }
+        return Alphabet.intern(chars.toString());
+    }
+
+    /** Return the characters of ALPHA in an order shuffled by RANDOM. */
+    private static List<Character> shuffled(Alphabet alpha, Random random) {
+        ArrayList<Character> result = new ArrayList<>();
+        for (int i = 0; i < alpha.size(); i += 1) {
+            result.add(alpha.toChar(i));
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /** Return the cycles of a random permutation of ALPHA made of one
+     *  cycle through every character. */
+    static String rotorCycles(Alphabet alpha, Random random) {
+        StringBuilder cycles = new StringBuilder("(");
+        for (char c : shuffled(alpha, random)) {
+            cycles.append(c);
+        }
+        return cycles.append(')').toString();
+    }
+
+    /** Return the cycles of a random reflector for ALPHA, which must have
+     *  an even number of characters. */
+    static String reflectorCycles(Alphabet alpha, Random random) {
+        List<Character> chars = shuffled(alpha, random);
+        StringBuilder cycles = new StringBuilder();
+        for (int i = 0; i + 1 < chars.size(); i += 2) {
+            cycles.append('(').append(chars.get(i)).append(chars.get(i + 1))
+                .append(") ");
+        }
+        return cycles.toString();
+    }
+
+    /** Return the names of the rotors in a machine with NUMROTORS slots
+     *  and PAWLS pawls, as built by machine(): the reflector R, fixed
+     *  rotors F1, F2, ..., then moving rotors M1, M2, .... */
+    static String[] rotorNames(int numRotors, int pawls) {
+        String[] names = new String[numRotors];
+        names[0] = "R";
+        for (int i = 1; i < numRotors; i += 1) {
+            int moving = i - (numRotors - pawls) + 1;
+            names[i] = moving > 0 ? "M" + moving : "F" + i;
+        }
+        return names;
+    }
+
+    /** Return a catalog over an alphabet of ALPHASIZE characters holding
+     *  exactly the rotors named by rotorNames(NUMROTORS, PAWLS), each with
+     *  one notch. */
+    static RotorCatalog catalog(int alphaSize, int numRotors, int pawls) {
+        Alphabet alpha = alphabet(alphaSize);
+        Random random = new Random(SEED);
+        ArrayList<RotorSpec> specs = new ArrayList<>();
+        for (String name : rotorNames(numRotors, pawls)) {
+            RotorSpec.Kind kind =
+                name.startsWith("R") ? RotorSpec.Kind.REFLECTOR
+                : name.startsWith("M") ? RotorSpec.Kind.MOVING
+                : RotorSpec.Kind.FIXED;
+            String cycles = kind == RotorSpec.Kind.REFLECTOR
+                ? reflectorCycles(alpha, random) : rotorCycles(alpha, random);
+            String notch = String.valueOf(alpha.toChar(random.nextInt(
+                alpha.size())));
+            specs.add(new RotorSpec(name, kind, new Permutation(cycles, alpha),
+                                    notch));
+        }
+        return new RotorCatalog(alpha, numRotors, pawls, specs);
+    }
+
+    /** Return a machine over ALPHASIZE characters with NUMROTORS slots and
+     *  PAWLS pawls, all rotors inserted and set to position 0, and a
+     *  plugboard swapping the first two characters. */
+    static Machine machine(int alphaSize, int numRotors, int pawls) {
+        RotorCatalog catalog = catalog(alphaSize, numRotors, pawls);
+        Alphabet alpha = catalog.alphabet();
+        Machine machine = catalog.newMachine();
+        machine.insertRotors(rotorNames(numRotors, pawls));
+        StringBuilder setting = new StringBuilder();
+        for (int i = 1; i < numRotors; i += 1) {
+            setting.append(alpha.toChar(0));
+        }
+        machine.setRotors(setting.toString());
+        machine.setPlugboard(new Permutation(
+            "(" + alpha.toChar(0) + alpha.toChar(1) + ")", alpha));
+        return machine;
+    }
+
+    /** Return a random message of LENGTH characters of ALPHA. */
+    static String message(Alphabet alpha, int length) {
+        Random random = new Random(SEED);
+        char[] msg = new char[length];
+        for (int i = 0; i < length; i += 1) {
+            msg[i] = alpha.toChar(random.nextInt(alpha.size()));
+        }
+        return new String(msg);
+    }
+
+}
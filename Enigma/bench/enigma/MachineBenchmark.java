@@ -0,0 +1,91 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Machine.convert(int) and Machine.convert(String) over
+ *  alphabet sizes, rotor and pawl counts, message lengths and engines.
+ *  Throughput is reported per message; divide by msgLength for a
+ *  per-character figure.
+ *  @author Vedant Bhatter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBenchmark {
+
+    /** Size of the machine's alphabet. */
+    @Param({ "26", "256" })
+    public int alphaSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({ "3", "5", "8" })
+    public int numRotors;
+
+    /** Number of pawls; reduced to numRotors - 1 if it is larger. */
+    @Param({ "1", "3" })
+    public int pawls;
+
+    /** Characters per message. */
+    @Param({ "16", "4096" })
+    public int msgLength;
+
+    /** Engine used by convert(int). */
+    @Param({ "DIRECT", "FUSED", "KEYSTREAM" })
+    public Machine.Engine engine;
+
+    /** Build the machine and the message. */
+    @Setup
+    public void setUp() {
+        _machine = BenchConfig.machine(alphaSize, numRotors,
+                                       Math.min(pawls, numRotors - 1));
+        _machine.setEngine(engine);
+        _msg = BenchConfig.message(_machine.catalog().alphabet(), msgLength);
+        _indices = new int[msgLength];
+        for (int i = 0; i < msgLength; i += 1) {
+            _indices[i] =
+                _machine.catalog().alphabet().toInt(_msg.charAt(i));
+        }
+    }
+
+    /** Convert the message one index at a time. */
+    @Benchmark
+    public int convertInt() {
+        int acc = 0;
+        for (int c : _indices) {
+            acc += _machine.convert(c);
+        }
+        return acc;
+    }
+
+    /** Convert the message as a String. */
+    @Benchmark
+    public String convertString() {
+        return _machine.convert(_msg);
+    }
+
+    /** Machine under test.  Its rotors keep moving from one invocation
+     *  to the next, so every setting is exercised. */
+    private Machine _machine;
+
+    /** Message to convert. */
+    private String _msg;
+
+    /** Indices of the characters of _msg. */
+    private int[] _indices;
+
+}
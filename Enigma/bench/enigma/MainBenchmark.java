@@ -0,0 +1,143 @@
+package enigma;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** End-to-end benchmark of Main: reading a configuration file and an
+ *  input file of messages, and writing the converted messages to an
+ *  output file.  The alphabet is the 26 upper-case letters, so that the
+ *  files are the same in every character set.
+ *  @author Vedant Bhatter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MainBenchmark {
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({ "5" })
+    public int numRotors;
+
+    /** Number of pawls. */
+    @Param({ "3" })
+    public int pawls;
+
+    /** Total message characters in the input file. */
+    @Param({ "10000", "1000000" })
+    public int msgLength;
+
+    /** Message characters between settings lines.  A message line ends
+     *  where a segment does, so it may be shorter than LINE_LENGTH. */
+    @Param({ "1000", "100000" })
+    public int segmentLength;
+
+    /** True to pass Main the --parallel flag. */
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    /** Write the configuration and input files. */
+    @Setup
+    public void setUp() throws IOException {
+        Alphabet alpha = BenchConfig.alphabet(ALPHA_SIZE);
+        String[] names = BenchConfig.rotorNames(numRotors, pawls);
+        Random random = new Random(BenchConfig.SEED);
+        StringBuilder config = new StringBuilder();
+        config.append(' ').append(alpha.getChars()).append('\n');
+        config.append(' ').append(numRotors).append(' ').append(pawls)
+            .append('\n');
+        for (String name : names) {
+            config.append(' ').append(name).append(' ');
+            if (name.startsWith("R")) {
+                config.append("R ")
+                    .append(BenchConfig.reflectorCycles(alpha, random));
+            } else {
+                if (name.startsWith("M")) {
+                    config.append('M')
+                        .append(alpha.toChar(random.nextInt(ALPHA_SIZE)));
+                } else {
+                    config.append('N');
+                }
+                config.append(' ')
+                    .append(BenchConfig.rotorCycles(alpha, random));
+            }
+            config.append('\n');
+        }
+
+        String msg = BenchConfig.message(alpha, msgLength);
+        StringBuilder input = new StringBuilder();
+        int segment = 0;
+        for (int i = 0; i < msgLength; ) {
+            if (segment == 0) {
+                input.append("* ").append(String.join(" ", names))
+                    .append(' ')
+                    .append(msg, i, i + numRotors - 1)
+                    .append(" (AB) (CD)\n");
+            }
+            int len = Math.min(LINE_LENGTH, Math.min(msgLength - i,
+                                                     segmentLength - segment));
+            String line = msg.substring(i, i + len);
+            i += len;
+            segment = (segment + len) % segmentLength;
+            for (int k = 0; k < line.length(); k += 5) {
+                input.append(line, k, Math.min(line.length(), k + 5))
+                    .append(' ');
+            }
+            input.append('\n');
+        }
+
+        _config = File.createTempFile("enigma", ".conf");
+        _input = File.createTempFile("enigma", ".in");
+        _output = File.createTempFile("enigma", ".out");
+        Files.writeString(_config.toPath(), config);
+        Files.writeString(_input.toPath(), input);
+    }
+
+    /** Remove the files written by setUp and main(). */
+    @TearDown
+    public void tearDown() {
+        _config.delete();
+        _input.delete();
+        _output.delete();
+    }
+
+    /** Run Main on the input file. */
+    @Benchmark
+    public void main() {
+        if (parallel) {
+            Main.main(Main.PARALLEL_FLAG, _config.getPath(), _input.getPath(),
+                      _output.getPath());
+        } else {
+            Main.main(_config.getPath(), _input.getPath(), _output.getPath());
+        }
+    }
+
+    /** Alphabet size used by this benchmark. */
+    static final int ALPHA_SIZE = 26;
+
+    /** Message characters per input line. */
+    static final int LINE_LENGTH = 60;
+
+    /** Configuration, input and output files. */
+    private File _config, _input, _output;
+
+}
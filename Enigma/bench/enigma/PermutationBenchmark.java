@@ -0,0 +1,75 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Permutation.permute(int) and Permutation.invert(int).
+ *  @author Vedant Bhatter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermutationBenchmark {
+
+    /** Size of the permuted alphabet. */
+    @Param({ "26", "64", "256" })
+    public int alphaSize;
+
+    /** Build the permutation and a sequence of indices to apply it to. */
+    @Setup
+    public void setUp() {
+        Alphabet alpha = BenchConfig.alphabet(alphaSize);
+        Random random = new Random(BenchConfig.SEED);
+        _perm = new Permutation(BenchConfig.rotorCycles(alpha, random), alpha);
+        _inputs = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i += 1) {
+            _inputs[i] = random.nextInt(alphaSize);
+        }
+    }
+
+    /** Permute INPUTS indices, returning a value that depends on all of
+     *  them. */
+    @Benchmark
+    public int permute() {
+        int acc = 0;
+        for (int p : _inputs) {
+            acc += _perm.permute(p);
+        }
+        return acc;
+    }
+
+    /** Invert INPUTS indices. */
+    @Benchmark
+    public int invert() {
+        int acc = 0;
+        for (int c : _inputs) {
+            acc += _perm.invert(c);
+        }
+        return acc;
+    }
+
+    /** Number of indices per benchmark invocation. */
+    static final int INPUTS = 1024;
+
+    /** Permutation under test. */
+    private Permutation _perm;
+
+    /** Indices to permute. */
+    private int[] _inputs;
+
+}
@@ -0,0 +1,79 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Rotor.convertForward and Rotor.convertBackward at
+ *  varying settings.
+ *  @author Vedant Bhatter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotorBenchmark {
+
+    /** Size of the rotor's alphabet. */
+    @Param({ "26", "64", "256" })
+    public int alphaSize;
+
+    /** Build a moving rotor and a sequence of indices to convert. */
+    @Setup
+    public void setUp() {
+        Alphabet alpha = BenchConfig.alphabet(alphaSize);
+        Random random = new Random(BenchConfig.SEED);
+        _rotor = new MovingRotor("M",
+            new Permutation(BenchConfig.rotorCycles(alpha, random), alpha),
+            String.valueOf(alpha.toChar(0)));
+        _inputs = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i += 1) {
+            _inputs[i] = random.nextInt(alphaSize);
+        }
+    }
+
+    /** Convert INPUTS indices forward, advancing the rotor after each. */
+    @Benchmark
+    public int convertForward() {
+        int acc = 0;
+        for (int p : _inputs) {
+            acc += _rotor.convertForward(p);
+            _rotor.advance();
+        }
+        return acc;
+    }
+
+    /** Convert INPUTS indices backward, advancing the rotor after each. */
+    @Benchmark
+    public int convertBackward() {
+        int acc = 0;
+        for (int e : _inputs) {
+            acc += _rotor.convertBackward(e);
+            _rotor.advance();
+        }
+        return acc;
+    }
+
+    /** Number of indices per benchmark invocation. */
+    static final int INPUTS = 1024;
+
+    /** Rotor under test. */
+    private Rotor _rotor;
+
+    /** Indices to convert. */
+    private int[] _inputs;
+
+}
@@ -1,14 +1,38 @@
 package enigma;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static enigma.EnigmaException.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
- *  to and from indices into the alphabet.
+ *  to and from indices into the alphabet.  The reverse mapping is built
+ *  once, when the alphabet is constructed: a direct table over the span of
+ *  the alphabet's characters when that span is small (ASCII and other
+ *  compact ranges), and an open-addressed hash table otherwise.
  *  @author Vedant Bhatter
  */
 class Alphabet {
 
+    /** Largest character span indexed with a direct table. */
+    private static final int DIRECT_LIMIT = 1 << 12;
+
     /** It is a string. */
-    private String _chars;
+    private final String _chars;
+
+    /** Smallest character in _chars; _direct is indexed from here. */
+    private char _base;
+
+    /** Direct reverse index (-1 for absent), or null if sparse. */
+    private int[] _direct;
+
+    /** Sparse reverse index keys; only used when _direct is null. */
+    private char[] _keys;
+
+    /** Indices corresponding to _keys (-1 for empty slots). */
+    private int[] _values;
 
     /** A new alphabet containing CHARS. The K-th character has index
      *  K (numbering from 0). No character may be duplicated. */
@@ -30,7 +54,7 @@ class Alphabet {
             throw new EnigmaException("Cannot contain ( "
                     + "or ), not valid Alphabet");
         }
-
+        buildIndex();
     }
 
 
@@ -39,6 +63,83 @@ class Alphabet {
         this("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
     }
 
+    /** Return the shared alphabet containing CHARS, creating it on first
+     *  use.  Machines, rotors and permutations built from the same
+     *  configuration thus all refer to one Alphabet object.  Alphabets are
+     *  held weakly, so that one is forgotten once nothing else uses it,
+     *  and the table is no larger than the set of alphabets in use. */
+    static synchronized Alphabet intern(String chars) {
+        for (Object ref = CLEARED.poll(); ref != null;
+             ref = CLEARED.poll()) {
+            Interned cleared = (Interned) ref;
+            INTERNED.remove(cleared._chars, cleared);
+        }
+        Interned ref = INTERNED.get(chars);
+        Alphabet result = ref == null ? null : ref.get();
+        if (result == null) {
+            result = new Alphabet(chars);
+            INTERNED.put(chars, new Interned(result));
+        }
+        return result;
+    }
+
+    /** Fill in the reverse index for _chars. */
+    private void buildIndex() {
+        char lo = Character.MAX_VALUE, hi = Character.MIN_VALUE;
+        for (int i = 0; i < _chars.length(); i += 1) {
+            char c = _chars.charAt(i);
+            lo = c < lo ? c : lo;
+            hi = c > hi ? c : hi;
+        }
+        if (hi - lo < DIRECT_LIMIT) {
+            _base = lo;
+            _direct = new int[hi - lo + 1];
+            Arrays.fill(_direct, -1);
+            for (int i = 0; i < _chars.length(); i += 1) {
+                int k = _chars.charAt(i) - lo;
+                if (_direct[k] >= 0) {
+                    throw error("Duplicate %c, not valid Alphabet",
+                            _chars.charAt(i));
+                }
+                _direct[k] = i;
+            }
+        } else {
+            int cap = Integer.highestOneBit(_chars.length() * 2 + 1) << 1;
+            _keys = new char[cap];
+            _values = new int[cap];
+            Arrays.fill(_values, -1);
+            for (int i = 0; i < _chars.length(); i += 1) {
+                char c = _chars.charAt(i);
+                int h = slot(c);
+                if (_values[h] >= 0) {
+                    throw error("Duplicate %c, not valid Alphabet", c);
+                }
+                _keys[h] = c;
+                _values[h] = i;
+            }
+        }
+    }
+
+    /** Return the sparse-table slot holding CH, or the empty slot where it
+     *  would go. */
+    private int slot(char ch) {
+        int mask = _keys.length - 1;
+        int h = (ch * 0x9E3779B1) >>> 16 & mask;
+        while (_values[h] >= 0 && _keys[h] != ch) {
+            h = (h + 1) & mask;
+        }
+        return h;
+    }
+
+    /** Return the index of CH, or -1 if it is not in this alphabet. */
+    private int indexOf(char ch) {
+        if (_direct != null) {
+            int k = ch - _base;
+            return k >= 0 && k < _direct.length ? _direct[k] : -1;
+        }
+        return _values[slot(ch)];
+    }
+
     /** Returns the size of the alphabet. */
     int size() {
         return _chars.length();
@@ -52,15 +153,7 @@ class Alphabet {
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        int i = 0;
-        int len = _chars.length();
-        while (i < len) {
-            if (ch == _chars.charAt(i)) {
-                return true;
-            }
-            i += 1;
-        }
-        return false;
+        return indexOf(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
@@ -76,15 +169,32 @@ class Alphabet {
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
     int toInt(char ch) {
-        int i = 0;
-        int len = _chars.length();
-        while (i < len) {
-            if (ch == _chars.charAt(i)) {
-                return i;
-            }
-            i += 1;
+        int i = indexOf(ch);
+        if (i < 0) {
+            throw new EnigmaException("Ch not in alphabet / out of range");
         }
-        throw new EnigmaException("Ch not in alphabet / out of range");
+        return i;
+    }
+
+    /** A weak reference to an interned alphabet, which remembers the
+     *  alphabet's characters so that it can be removed from INTERNED once
+     *  cleared. */
+    private static class Interned extends WeakReference<Alphabet> {
+        /** A reference to ALPHABET, queued on CLEARED when cleared. */
+        Interned(Alphabet alphabet) {
+            super(alphabet, CLEARED);
+            _chars = alphabet.getChars();
+        }
+
+        /** The alphabet's characters. */
+        private final String _chars;
     }
 
+    /** Alphabets handed out by intern(), keyed by their characters. */
+    private static final HashMap<String, Interned> INTERNED = new HashMap<>();
+
+    /** References in INTERNED whose alphabets have been collected. */
+    private static final ReferenceQueue<Alphabet> CLEARED =
+        new ReferenceQueue<>();
+
 }
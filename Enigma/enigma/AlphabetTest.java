@@ -0,0 +1,72 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author Vedant Bhatter
+ */
+public class AlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Check that every character of CHARS round-trips through A. */
+    private void checkRoundTrip(Alphabet a, String chars) {
+        assertEquals(chars.length(), a.size());
+        for (int i = 0; i < chars.length(); i += 1) {
+            assertEquals(i, a.toInt(chars.charAt(i)));
+            assertEquals(chars.charAt(i), a.toChar(i));
+            assertTrue(a.contains(chars.charAt(i)));
+        }
+    }
+
+    @Test
+    public void testDirectIndex() {
+        checkRoundTrip(UPPER, UPPER_STRING);
+        assertFalse(UPPER.contains('a'));
+        assertFalse(UPPER.contains('@'));
+    }
+
+    @Test
+    public void testSparseIndex() {
+        String chars = "A\u00e9\u4e00\u4e01\uac00\uffee";
+        checkRoundTrip(new Alphabet(chars), chars);
+        assertFalse(new Alphabet(chars).contains('B'));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testMissing() {
+        new Alphabet("A\u4e00").toInt('B');
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicate() {
+        new Alphabet("ABCA");
+    }
+
+    @Test
+    public void testIntern() {
+        assertSame(Alphabet.intern("XYZ"), Alphabet.intern("XYZ"));
+    }
+
+    @Test
+    public void testInternHoldsWeakly() throws InterruptedException {
+        WeakReference<Alphabet> ref =
+            new WeakReference<>(Alphabet.intern("QWERTZU"));
+        for (int i = 0; i < 50 && ref.get() != null; i += 1) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertEquals("QWERTZU", Alphabet.intern("QWERTZU").getChars());
+    }
+
+}
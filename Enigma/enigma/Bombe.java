@@ -0,0 +1,446 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** A Turing-Welchman bombe: a known-plaintext attack that finds rotor
+ *  orders, start positions and plugboards together.
+ *
+ *  The crib and its ciphertext form a menu: a graph on the letters with
+ *  an edge between CRIB[i] and CIPHER[i] for each position i.  If S_i is
+ *  the rotor stack (without plugboard) at position i and P the
+ *  plugboard, every edge says P(CIPHER[i]) = S_i(P(CRIB[i])).  For each
+ *  rotor order and start position, and each hypothesis for the plugboard
+ *  partner of the menu's most connected letter, the bombe closes the
+ *  hypothesis under those implications and under the symmetry of the
+ *  plugboard (the diagonal board).  A hypothesis dies as soon as some
+ *  letter is implied to have two partners.  A survivor is a stop; the
+ *  letters of the other parts of the menu are then tried in the same
+ *  way, and the resulting plugboard is verified by encoding the crib on
+ *  a full Machine.
+ *
+ *  The rotor stack at each menu position is evaluated from the rotors'
+ *  precomputed per-setting tables (Permutation.rotorForward), so a stop
+ *  costs only array lookups.
+ *  @author Vedant Bhatter
+ */
+final class Bombe {
+
+    /** A bombe over the rotors in CATALOG for keys that encode CRIB as
+     *  CIPHER, where CRIB starts OFFSET characters into the message. */
+    Bombe(RotorCatalog catalog, String crib, String cipher, long offset) {
+        if (crib.length() != cipher.length() || crib.isEmpty()) {
+            throw error("crib and ciphertext must have the same, nonzero,"
+                        + " length");
+        }
+        if (offset < 0) {
+            throw error("negative crib offset");
+        }
+        if (catalog.alphabet().size() > Permutation.ROTOR_TABLE_LIMIT) {
+            throw error("alphabet too large for the bombe");
+        }
+        _catalog = catalog;
+        _offset = offset;
+        Alphabet alpha = catalog.alphabet();
+        int n = alpha.size();
+        _crib = new int[crib.length()];
+        _cipher = new int[cipher.length()];
+        int[] degree = new int[n];
+        for (int i = 0; i < crib.length(); i += 1) {
+            _crib[i] = alpha.toInt(crib.charAt(i));
+            _cipher[i] = alpha.toInt(cipher.charAt(i));
+            if (_crib[i] == _cipher[i]) {
+                throw error("crib letter %c encodes to itself at %d",
+                            crib.charAt(i), i);
+            }
+            degree[_crib[i]] += 1;
+            degree[_cipher[i]] += 1;
+        }
+        _menu = new int[n][];
+        for (int c = 0; c < n; c += 1) {
+            _menu[c] = new int[2 * degree[c]];
+        }
+        int[] fill = new int[n];
+        for (int i = 0; i < _crib.length; i += 1) {
+            addEdge(_crib[i], _cipher[i], i, fill);
+            addEdge(_cipher[i], _crib[i], i, fill);
+        }
+        _tests = testLetters(degree);
+        _orders = KeySearch.rotorOrders(catalog);
+    }
+
+    /** Record the menu edge from A to B at position I; FILL counts the
+     *  entries of each letter's list filled so far. */
+    private void addEdge(int a, int b, int i, int[] fill) {
+        _menu[a][fill[a]] = b;
+        _menu[a][fill[a] + 1] = i;
+        fill[a] += 2;
+    }
+
+    /** Return the most connected letter of each connected part of the
+     *  menu, given the DEGREE of each letter, the largest part first. */
+    private int[] testLetters(int[] degree) {
+        int n = degree.length;
+        int[] part = new int[n];
+        Arrays.fill(part, -1);
+        ArrayList<int[]> parts = new ArrayList<>();
+        for (int c = 0; c < n; c += 1) {
+            if (degree[c] == 0 || part[c] >= 0) {
+                continue;
+            }
+            int best = c, size = 0;
+            int[] stack = new int[n];
+            int top = 0;
+            stack[top++] = c;
+            part[c] = parts.size();
+            while (top > 0) {
+                int a = stack[--top];
+                size += 1;
+                if (degree[a] > degree[best]) {
+                    best = a;
+                }
+                for (int k = 0; k < _menu[a].length; k += 2) {
+                    int b = _menu[a][k];
+                    if (part[b] < 0) {
+                        part[b] = part[c];
+                        stack[top++] = b;
+                    }
+                }
+            }
+            parts.add(new int[] { best, size });
+        }
+        parts.sort((x, y) -> y[1] - x[1]);
+        int[] result = new int[parts.size()];
+        for (int k = 0; k < result.length; k += 1) {
+            result[k] = parts.get(k)[0];
+        }
+        return result;
+    }
+
+    /** Run the bombe in the common fork-join pool, returning the verified
+     *  keys in enumeration order. */
+    List<KeySetting> run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /** Run the bombe in POOL, returning the verified keys in enumeration
+     *  order. */
+    List<KeySetting> run(ForkJoinPool pool) {
+        _positions.reset();
+        _stops.reset();
+        int units = _orders.size() * _catalog.alphabet().size();
+        return pool.invoke(new Units(0, units));
+    }
+
+    /** Return the number of rotor positions tested by the last run. */
+    long positions() {
+        return _positions.sum();
+    }
+
+    /** Return the number of stops (hypotheses that survived the menu)
+     *  in the last run, before verification. */
+    long stops() {
+        return _stops.sum();
+    }
+
+    /** The search of units [LO .. HI-1], each one rotor order and one
+     *  position of the leftmost rotor, split in half until small. */
+    private class Units extends RecursiveTask<List<KeySetting>> {
+
+        /** Search units LO .. HI-1. */
+        Units(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected List<KeySetting> compute() {
+            if (_hi - _lo > KeySearch.LEAF_UNITS) {
+                int mid = (_lo + _hi) >>> 1;
+                Units left = new Units(_lo, mid);
+                left.fork();
+                List<KeySetting> right = new Units(mid, _hi).compute();
+                List<KeySetting> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            Worker worker = new Worker();
+            for (int unit = _lo; unit < _hi; unit += 1) {
+                worker.searchUnit(unit);
+            }
+            return worker._found;
+        }
+
+        /** First and last + 1 units searched. */
+        private final int _lo, _hi;
+    }
+
+    /** The state of one thread of the search. */
+    private class Worker {
+
+        /** A worker with its own machine and scratch tables. */
+        Worker() {
+            int n = _catalog.alphabet().size();
+            int len = _crib.length;
+            _n = n;
+            _k = _catalog.numRotors();
+            _machine = _catalog.newMachine();
+            _settings = new int[len * _k];
+            _forward = new int[_k][];
+            _backward = new int[_k][];
+            _memo = new int[len * n];
+            _memoStamp = new int[len * n];
+            _plug = new int[n];
+            Arrays.fill(_plug, -1);
+            _trail = new int[n];
+        }
+
+        /** Test every start position of UNIT. */
+        void searchUnit(int unit) {
+            String[] order = _orders.get(unit / _n);
+            _machine.insertRotors(order);
+            for (int j = 0; j < _k; j += 1) {
+                Permutation perm = _catalog.get(order[j]).permutation();
+                _forward[j] = perm.rotorForward();
+                _backward[j] = perm.rotorBackward();
+            }
+            int[] posn = new int[_k - 1];
+            posn[0] = unit % _n;
+            long tested = 0;
+            do {
+                tested += 1;
+                testPosition(order, posn);
+            } while (nextPosition(posn));
+            _positions.add(tested);
+        }
+
+        /** Step POSN, except its first element, to the next position in
+         *  odometer order, returning false when it wraps. */
+        private boolean nextPosition(int[] posn) {
+            for (int i = posn.length - 1; i > 0; i -= 1) {
+                posn[i] += 1;
+                if (posn[i] < _n) {
+                    return true;
+                }
+                posn[i] = 0;
+            }
+            return false;
+        }
+
+        /** Run the menu against rotor order ORDER at start position
+         *  POSN, adding verified keys to _found. */
+        private void testPosition(String[] order, int[] posn) {
+            _start = posn;
+            _machine.setRotors(posn);
+            _machine.seek(_offset);
+            for (int i = 0; i < _crib.length; i += 1) {
+                _machine.step();
+                for (int j = 1; j < _k; j += 1) {
+                    _settings[i * _k + j] = _machine.getRotor(j).setting();
+                }
+            }
+            _stamp += 1;
+            int test = _tests[0];
+            for (int x = 0; x < _n; x += 1) {
+                if (assign(test, x) && close()) {
+                    _stops.increment();
+                    if (complete(1)) {
+                        _found.add(new KeySetting(order, setting(posn),
+                                                  plugboard()));
+                    }
+                }
+                undo(0);
+            }
+        }
+
+        /** Assign partners to the test letters of parts K and up of the
+         *  menu, and verify the complete plugboard.  Returns true iff a
+         *  verified key has been added to _found. */
+        private boolean complete(int k) {
+            if (k == _tests.length) {
+                return verify();
+            }
+            int test = _tests[k];
+            if (_plug[test] >= 0) {
+                return complete(k + 1);
+            }
+            int mark = _trailSize;
+            for (int x = 0; x < _n; x += 1) {
+                if (assign(test, x) && close() && complete(k + 1)) {
+                    return true;
+                }
+                undo(mark);
+            }
+            return false;
+        }
+
+        /** Return true iff the current plugboard, with every unassigned
+         *  letter unplugged, encodes the crib as the ciphertext on a full
+         *  Machine. */
+        private boolean verify() {
+            _machine.setRotors(_start);
+            _machine.setPlugboard(
+                new Permutation(plugboard(), _catalog.alphabet()));
+            _machine.seek(_offset);
+            for (int i = 0; i < _crib.length; i += 1) {
+                if (_machine.convert(_crib[i]) != _cipher[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Make A and B plugboard partners, returning false if either
+         *  already has a different partner. */
+        private boolean assign(int a, int b) {
+            if (_plug[a] == b) {
+                return true;
+            }
+            if (_plug[a] >= 0 || _plug[b] >= 0) {
+                return false;
+            }
+            _plug[a] = b;
+            _plug[b] = a;
+            _trail[_trailSize++] = a;
+            if (b != a) {
+                _trail[_trailSize++] = b;
+            }
+            return true;
+        }
+
+        /** Close the assignments made since the last close() under the
+         *  menu, returning false on a contradiction. */
+        private boolean close() {
+            while (_queueHead < _trailSize) {
+                int a = _trail[_queueHead++];
+                int[] edges = _menu[a];
+                int y = _plug[a];
+                for (int k = 0; k < edges.length; k += 2) {
+                    if (!assign(edges[k], scramble(edges[k + 1], y))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Unassign every letter assigned after the first MARK entries of
+         *  the trail. */
+        private void undo(int mark) {
+            while (_trailSize > mark) {
+                _plug[_trail[--_trailSize]] = -1;
+            }
+            _queueHead = mark;
+        }
+
+        /** Return the image of Y under the rotor stack at menu position
+         *  I, memoized for the current start position. */
+        private int scramble(int i, int y) {
+            int key = i * _n + y;
+            if (_memoStamp[key] == _stamp) {
+                return _memo[key];
+            }
+            int base = i * _k, z = y;
+            for (int j = _k - 1; j >= 0; j -= 1) {
+                z = _forward[j][_settings[base + j] * _n + z];
+            }
+            for (int j = 1; j < _k; j += 1) {
+                z = _backward[j][_settings[base + j] * _n + z];
+            }
+            _memo[key] = z;
+            _memoStamp[key] = _stamp;
+            return z;
+        }
+
+        /** Return the current plugboard in cycle notation. */
+        private String plugboard() {
+            Alphabet alpha = _catalog.alphabet();
+            StringBuilder cycles = new StringBuilder();
+            for (int a = 0; a < _n; a += 1) {
+                if (_plug[a] > a) {
+                    cycles.append('(').append(alpha.toChar(a))
+                        .append(alpha.toChar(_plug[a])).append(") ");
+                }
+            }
+            return cycles.toString().strip();
+        }
+
+        /** Return POSN as a string of characters. */
+        private String setting(int[] posn) {
+            char[] chars = new char[posn.length];
+            for (int i = 0; i < posn.length; i += 1) {
+                chars[i] = _catalog.alphabet().toChar(posn[i]);
+            }
+            return new String(chars);
+        }
+
+        /** Alphabet size and number of rotor slots. */
+        private final int _n, _k;
+
+        /** Machine used for stepping and verification. */
+        private final Machine _machine;
+
+        /** Setting of slot J at menu position I is _settings[I * _k + J]. */
+        private final int[] _settings;
+
+        /** Rotor tables of the rotors in each slot. */
+        private final int[][] _forward, _backward;
+
+        /** Memoized scramble() results, valid where _memoStamp equals
+         *  _stamp. */
+        private final int[] _memo, _memoStamp;
+
+        /** Start position being tested. */
+        private int[] _start;
+
+        /** Identifies the start position being tested. */
+        private int _stamp;
+
+        /** Plugboard partner of each letter, or -1 if not yet known. */
+        private final int[] _plug;
+
+        /** Letters assigned, in order; the first _trailSize are valid. */
+        private final int[] _trail;
+
+        /** Number of valid entries in _trail. */
+        private int _trailSize;
+
+        /** Entries of _trail before _queueHead have been propagated. */
+        private int _queueHead;
+
+        /** Verified keys. */
+        private final ArrayList<KeySetting> _found = new ArrayList<>();
+    }
+
+    /** Rotors available. */
+    private final RotorCatalog _catalog;
+
+    /** Message offset of the crib. */
+    private final long _offset;
+
+    /** Crib and ciphertext, as alphabet indices. */
+    private final int[] _crib, _cipher;
+
+    /** For each letter, pairs (other letter, position) of its menu
+     *  edges. */
+    private final int[][] _menu;
+
+    /** Most connected letter of each part of the menu, largest first. */
+    private final int[] _tests;
+
+    /** Rotor orders searched. */
+    private final List<String[]> _orders;
+
+    /** Rotor positions tested by the current or last run. */
+    private final LongAdder _positions = new LongAdder();
+
+    /** Stops found by the current or last run. */
+    private final LongAdder _stops = new LongAdder();
+
+}
@@ -0,0 +1,62 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Bombe class.
+ *  @author Vedant Bhatter
+ */
+public class BombeTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /** The rotors of the 4-slot, 3-pawl machines tried. */
+    private static final String[] ROTORS = { "B", "I", "II", "III" };
+
+    @Test
+    public void testFindsPlugboard() {
+        RotorCatalog catalog = catalog(4, 3, ROTORS);
+        KeySetting key = new KeySetting(new String[] { "B", "II", "I", "III" },
+                                        "KDV", "(AQ) (EP) (TX) (HN) (RZ)");
+        Machine m = catalog.newMachine();
+        key.apply(m);
+        m.convert("XXX");
+        String crib = "WETTERVORHERSAGEBISKAYA";
+        String cipher = m.convert(crib);
+
+        Bombe bombe = new Bombe(catalog, crib, cipher, 3);
+        List<KeySetting> found = bombe.run();
+        assertEquals(6 * 26 * 26 * 26, bombe.positions());
+        assertTrue(bombe.stops() >= found.size());
+        boolean sawKey = false;
+        for (KeySetting other : found) {
+            Machine check = catalog.newMachine();
+            other.apply(check);
+            check.seek(3);
+            assertEquals(cipher, check.convert(crib));
+            if (other.rotors()[1].equals("II")
+                && other.setting().equals("KDV")) {
+                sawKey = true;
+                Machine full = catalog.newMachine();
+                other.apply(full);
+                key.apply(m);
+                assertEquals(m.convert(crib), full.convert(crib));
+            }
+        }
+        assertTrue(sawKey);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testSelfEncoding() {
+        new Bombe(catalog(4, 3, ROTORS), "ABC", "XBY", 0);
+    }
+
+}
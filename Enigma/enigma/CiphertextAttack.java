@@ -0,0 +1,479 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only attack.  Phase one tries every rotor order (as
+ *  KeySearch.rotorOrders) and start position with an empty plugboard and
+ *  keeps the candidates whose trial decryptions have the highest index
+ *  of coincidence.  Phase two hill-climbs a plugboard for each of them,
+ *  one pair at a time, scoring decryptions with an NGramModel (or by
+ *  index of coincidence if there is none).  Both phases run in a
+ *  fork-join pool, and messages are handled as arrays of alphabet
+ *  indices, so that scoring allocates nothing.  progress() and the other
+ *  counters may be read from other threads while a run is under way.
+ *  @author Vedant Bhatter
+ */
+final class CiphertextAttack {
+
+    /** Default number of phase-one candidates climbed in phase two. */
+    static final int DEFAULT_KEEP = 100;
+
+    /** Default limit on the number of plugboard pairs. */
+    static final int DEFAULT_MAX_PAIRS = 10;
+
+    /** A key and the score of the decryption it gives. */
+    static final class Candidate {
+
+        /** A candidate KEY scoring SCORE. */
+        Candidate(KeySetting key, double score) {
+            _key = key;
+            _score = score;
+        }
+
+        /** Return my key. */
+        KeySetting key() {
+            return _key;
+        }
+
+        /** Return my score; higher is better. */
+        double score() {
+            return _score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  %.4f", _key, _score);
+        }
+
+        /** My key. */
+        private final KeySetting _key;
+
+        /** My score. */
+        private final double _score;
+    }
+
+    /** Orders Candidates from best to worst. */
+    static final Comparator<Candidate> BEST_FIRST =
+        Comparator.comparingDouble(Candidate::score).reversed();
+
+    /** An attack on CIPHER using the rotors in CATALOG. */
+    CiphertextAttack(RotorCatalog catalog, String cipher) {
+        if (cipher.length() < 2) {
+            throw error("ciphertext too short");
+        }
+        Alphabet alpha = catalog.alphabet();
+        _catalog = catalog;
+        _cipher = new int[cipher.length()];
+        for (int i = 0; i < cipher.length(); i += 1) {
+            _cipher[i] = alpha.toInt(cipher.charAt(i));
+        }
+        _orders = KeySearch.rotorOrders(catalog);
+        _keep = DEFAULT_KEEP;
+        _maxPairs = DEFAULT_MAX_PAIRS;
+    }
+
+    /** Score plugboards with MODEL, or by index of coincidence if MODEL
+     *  is null. */
+    void setModel(NGramModel model) {
+        if (model != null && !model.alphabet().getChars()
+                                .equals(_catalog.alphabet().getChars())) {
+            throw error("n-gram model has the wrong alphabet");
+        }
+        _model = model;
+    }
+
+    /** Climb the best KEEP phase-one candidates. */
+    void setKeep(int keep) {
+        if (keep < 1) {
+            throw error("must keep at least one candidate");
+        }
+        _keep = keep;
+    }
+
+    /** Use plugboards of at most MAX pairs. */
+    void setMaxPairs(int max) {
+        _maxPairs = max;
+    }
+
+    /** Run the attack in the common fork-join pool, returning the climbed
+     *  candidates, best first. */
+    List<Candidate> run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /** Run the attack in POOL, returning the climbed candidates, best
+     *  first. */
+    List<Candidate> run(ForkJoinPool pool) {
+        _positions.reset();
+        _climbSteps.reset();
+        _unitsDone.set(0);
+        _climbsDone.set(0);
+        long start = System.nanoTime();
+        _units = _orders.size() * _catalog.alphabet().size();
+        List<Candidate> ranked = best(pool.invoke(new Positions(0, _units)));
+        _ranked = ranked.size();
+        Candidate[] climbed = new Candidate[ranked.size()];
+        pool.invoke(new Climbs(ranked, climbed, 0, climbed.length));
+        List<Candidate> result = new ArrayList<>(List.of(climbed));
+        result.sort(BEST_FIRST);
+        _elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /** Return the fraction of the current or last run that is done, from
+     *  0 to 1. */
+    double progress() {
+        int units = _units, ranked = _ranked;
+        if (units == 0) {
+            return 0;
+        }
+        double phaseOne = (double) _unitsDone.get() / units;
+        double phaseTwo =
+            ranked == 0 ? 0 : (double) _climbsDone.get() / ranked;
+        return (phaseOne + phaseTwo) / 2;
+    }
+
+    /** Return the number of start positions scored by phase one of the
+     *  current or last run. */
+    long positions() {
+        return _positions.sum();
+    }
+
+    /** Return the number of plugboards scored by phase two of the current
+     *  or last run. */
+    long climbSteps() {
+        return _climbSteps.sum();
+    }
+
+    /** Return the duration of the last run, in nanoseconds. */
+    long elapsedNanos() {
+        return _elapsed;
+    }
+
+    /** Return the start positions scored per second by the last run. */
+    double positionsPerSecond() {
+        return _elapsed == 0 ? 0 : positions() * 1e9 / _elapsed;
+    }
+
+    /** Phase one over units [LO .. HI-1], each one rotor order and one
+     *  position of the leftmost rotor, split in half until small.  Each
+     *  task returns its best _keep candidates. */
+    private class Positions extends RecursiveTask<List<Candidate>> {
+
+        /** Search units LO .. HI-1. */
+        Positions(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected List<Candidate> compute() {
+            if (_hi - _lo > KeySearch.LEAF_UNITS) {
+                int mid = (_lo + _hi) >>> 1;
+                Positions left = new Positions(_lo, mid);
+                left.fork();
+                List<Candidate> right = new Positions(mid, _hi).compute();
+                List<Candidate> result = left.join();
+                result.addAll(right);
+                return best(result);
+            }
+            PriorityQueue<Candidate> best =
+                new PriorityQueue<>(Comparator.comparingDouble(
+                    Candidate::score));
+            Machine machine = newMachine();
+            int[] counts = new int[_catalog.alphabet().size()];
+            for (int unit = _lo; unit < _hi; unit += 1) {
+                searchUnit(machine, unit, counts, best);
+                _unitsDone.incrementAndGet();
+            }
+            return new ArrayList<>(best);
+        }
+
+        /** First and last + 1 units searched. */
+        private final int _lo, _hi;
+    }
+
+    /** Return the best _keep of CANDIDATES, which may be modified. */
+    private List<Candidate> best(List<Candidate> candidates) {
+        if (candidates.size() <= _keep) {
+            return candidates;
+        }
+        candidates.sort(BEST_FIRST);
+        return new ArrayList<>(candidates.subList(0, _keep));
+    }
+
+    /** Score every start position of UNIT on MACHINE by index of
+     *  coincidence, using COUNTS as scratch space, and keep the best
+     *  _keep in BEST (a queue with the worst candidate at its head). */
+    private void searchUnit(Machine machine, int unit, int[] counts,
+                            PriorityQueue<Candidate> best) {
+        int n = _catalog.alphabet().size();
+        String[] order = _orders.get(unit / n);
+        machine.insertRotors(order);
+        int[] posn = new int[order.length - 1];
+        posn[0] = unit % n;
+        long tested = 0;
+        do {
+            tested += 1;
+            machine.setRotors(posn);
+            for (int c = 0; c < n; c += 1) {
+                counts[c] = 0;
+            }
+            for (int c : _cipher) {
+                counts[machine.convert(c)] += 1;
+            }
+            double ic = NGramModel.indexOfCoincidence(counts, _cipher.length);
+            if (best.size() < _keep || ic > best.peek().score()) {
+                best.add(new Candidate(
+                    new KeySetting(order, setting(posn), ""), ic));
+                if (best.size() > _keep) {
+                    best.poll();
+                }
+            }
+        } while (nextPosition(posn, n));
+        _positions.add(tested);
+    }
+
+    /** Phase two over RANKED[LO .. HI-1], storing the climbed candidates
+     *  in the same places in CLIMBED. */
+    private class Climbs extends RecursiveAction {
+
+        /** Climb RANKED[LO .. HI-1] into CLIMBED. */
+        Climbs(List<Candidate> ranked, Candidate[] climbed, int lo, int hi) {
+            _ranked = ranked;
+            _climbed = climbed;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new Climbs(_ranked, _climbed, _lo, mid),
+                          new Climbs(_ranked, _climbed, mid, _hi));
+                return;
+            }
+            if (_hi > _lo) {
+                _climbed[_lo] = new Climber(_ranked.get(_lo).key()).climb();
+                _climbsDone.incrementAndGet();
+            }
+        }
+
+        /** Candidates being climbed. */
+        private final List<Candidate> _ranked;
+
+        /** Results. */
+        private final Candidate[] _climbed;
+
+        /** First and last + 1 candidates climbed. */
+        private final int _lo, _hi;
+    }
+
+    /** The plugboard hill-climb for one rotor order and start position. */
+    private class Climber {
+
+        /** A climber for the rotors and setting of KEY. */
+        Climber(KeySetting key) {
+            _key = key;
+            int n = _catalog.alphabet().size(), len = _cipher.length;
+            _n = n;
+            _stack = new int[len * n];
+            _plug = new int[n];
+            _text = new int[len];
+            _counts = new int[n];
+            Machine machine = newMachine();
+            machine.insertRotors(key.rotors());
+            for (int c = 0; c < n; c += 1) {
+                machine.setRotors(key.setting());
+                for (int i = 0; i < len; i += 1) {
+                    _stack[i * n + c] = machine.convert(c);
+                }
+            }
+            for (int c = 0; c < n; c += 1) {
+                _plug[c] = c;
+            }
+        }
+
+        /** Return my key with the best plugboard found by swapping single
+         *  pairs in and out until no swap improves the score. */
+        Candidate climb() {
+            double best = score();
+            long steps = 1;
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int a = 0; a < _n; a += 1) {
+                    for (int b = a + 1; b < _n; b += 1) {
+                        int pa = _plug[a], pb = _plug[b], pairs = _pairs;
+                        if (!toggle(a, b)) {
+                            continue;
+                        }
+                        steps += 1;
+                        double s = score();
+                        if (s > best) {
+                            best = s;
+                            improved = true;
+                        } else {
+                            restore(a, b, pa, pb);
+                            _pairs = pairs;
+                        }
+                    }
+                }
+            }
+            _climbSteps.add(steps);
+            return new Candidate(_key.withPlugboard(plugboard()), best);
+        }
+
+        /** Unplug A and B if they are partners; otherwise unplug them
+         *  from their partners and plug them together.  Returns false
+         *  (changing nothing) if that would exceed _maxPairs. */
+        private boolean toggle(int a, int b) {
+            int pa = _plug[a], pb = _plug[b];
+            if (pa == b) {
+                _plug[a] = a;
+                _plug[b] = b;
+                _pairs -= 1;
+                return true;
+            }
+            int pairs = _pairs + 1 - (pa != a ? 1 : 0) - (pb != b ? 1 : 0);
+            if (pairs > _maxPairs) {
+                return false;
+            }
+            _plug[pa] = pa;
+            _plug[pb] = pb;
+            _plug[a] = b;
+            _plug[b] = a;
+            _pairs = pairs;
+            return true;
+        }
+
+        /** Undo toggle(A, B), where A and B had partners PA and PB. */
+        private void restore(int a, int b, int pa, int pb) {
+            _plug[pa] = a;
+            _plug[pb] = b;
+            _plug[a] = pa;
+            _plug[b] = pb;
+        }
+
+        /** Return the score of the decryption under the current
+         *  plugboard. */
+        private double score() {
+            int len = _cipher.length;
+            for (int i = 0; i < len; i += 1) {
+                _text[i] = _plug[_stack[i * _n + _plug[_cipher[i]]]];
+            }
+            if (_model == null) {
+                return NGramModel.indexOfCoincidence(_text, len, _counts);
+            }
+            return _model.score(_text, len);
+        }
+
+        /** Return the current plugboard in cycle notation. */
+        private String plugboard() {
+            Alphabet alpha = _catalog.alphabet();
+            StringBuilder cycles = new StringBuilder();
+            for (int a = 0; a < _n; a += 1) {
+                if (_plug[a] > a) {
+                    cycles.append('(').append(alpha.toChar(a))
+                        .append(alpha.toChar(_plug[a])).append(") ");
+                }
+            }
+            return cycles.toString().strip();
+        }
+
+        /** Rotors and setting being climbed. */
+        private final KeySetting _key;
+
+        /** Alphabet size. */
+        private final int _n;
+
+        /** Image of c under the rotor stack (without plugboard) at
+         *  message position i is _stack[i * _n + c]. */
+        private final int[] _stack;
+
+        /** Plugboard partner of each character (itself if unplugged). */
+        private final int[] _plug;
+
+        /** Number of pairs in _plug. */
+        private int _pairs;
+
+        /** Scratch space for a decryption and its character counts. */
+        private final int[] _text, _counts;
+    }
+
+    /** Return a new machine from my catalog with an empty plugboard. */
+    private Machine newMachine() {
+        Machine machine = _catalog.newMachine();
+        machine.setPlugboard(new Permutation("", _catalog.alphabet()));
+        return machine;
+    }
+
+    /** Step POSN, except its first element, to the next position in
+     *  odometer order over N characters, returning false when it wraps. */
+    private static boolean nextPosition(int[] posn, int n) {
+        for (int i = posn.length - 1; i > 0; i -= 1) {
+            posn[i] += 1;
+            if (posn[i] < n) {
+                return true;
+            }
+            posn[i] = 0;
+        }
+        return false;
+    }
+
+    /** Return POSN as a string of characters. */
+    private String setting(int[] posn) {
+        char[] chars = new char[posn.length];
+        for (int i = 0; i < posn.length; i += 1) {
+            chars[i] = _catalog.alphabet().toChar(posn[i]);
+        }
+        return new String(chars);
+    }
+
+    /** Rotors available. */
+    private final RotorCatalog _catalog;
+
+    /** Ciphertext, as alphabet indices. */
+    private final int[] _cipher;
+
+    /** Rotor orders searched. */
+    private final List<String[]> _orders;
+
+    /** Plugboard scoring model, or null for index of coincidence. */
+    private NGramModel _model;
+
+    /** Number of phase-one candidates climbed. */
+    private int _keep;
+
+    /** Limit on plugboard pairs. */
+    private int _maxPairs;
+
+    /** Number of phase-one units and phase-two climbs in the current or
+     *  last run. */
+    private volatile int _units, _ranked;
+
+    /** Phase-one units and phase-two climbs completed. */
+    private final AtomicInteger _unitsDone = new AtomicInteger(),
+        _climbsDone = new AtomicInteger();
+
+    /** Start positions scored. */
+    private final LongAdder _positions = new LongAdder();
+
+    /** Plugboards scored while climbing. */
+    private final LongAdder _climbSteps = new LongAdder();
+
+    /** Duration of the last run, in nanoseconds. */
+    private long _elapsed;
+
+}
@@ -0,0 +1,74 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.TreeMap;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CiphertextAttack class.
+ *  @author Vedant Bhatter
+ */
+public class CiphertextAttackTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /** Plaintext of the attacked message. */
+    private static final String PLAIN =
+        "THEWEATHERFORECASTFORTHEBAYOFBISCAYISFORSTRONGWINDSFROMTHEWEST"
+        + "ANDHEAVYRAINTHROUGHTHENIGHTWITHVISIBILITYFALLINGTOLESSTHANONE"
+        + "MILEBYMORNINGALLSHIPSINTHEAREAARETOREPORTTHEIRPOSITIONSATONCE"
+        + "ANDTOREMAINONTHEIRPRESENTCOURSEUNTILFURTHERORDERSTHECONVOYIS"
+        + "EXPECTEDTOPASSTHROUGHTHESOUTHERNAPPROACHESBEFOREDAWNANDTHEBOATS"
+        + "OFTHEGROUPARETOGATHERTHEREANDWAITFORTHESIGNALTOBEGINTHEATTACK"
+        + "THEREISNOCHANGEINTHEORDERSFORTHENORTHERNGROUPWHICHWILLCONTINUE";
+
+    /** The rotors of the 4-slot, 3-pawl machines tried. */
+    private static final String[] ROTORS = { "B", "I", "II", "III" };
+
+    /** Return a bigram model built from the bigrams of TEXT. */
+    private NGramModel bigrams(String text) {
+        TreeMap<String, Integer> counts = new TreeMap<>();
+        for (int i = 0; i + 1 < text.length(); i += 1) {
+            counts.merge(text.substring(i, i + 2), 1, Integer::sum);
+        }
+        StringBuilder table = new StringBuilder();
+        counts.forEach((gram, count) ->
+            table.append(gram).append(' ').append(count).append('\n'));
+        return new NGramModel(UPPER, new StringReader(table.toString()));
+    }
+
+    @Test
+    public void testRecoversKey() {
+        RotorCatalog catalog = catalog(4, 3, ROTORS);
+        KeySetting key = new KeySetting(new String[] { "B", "III", "I", "II" },
+                                        "MCK", "(AR) (GT)");
+        Machine m = catalog.newMachine();
+        key.apply(m);
+        String cipher = m.convert(PLAIN);
+
+        CiphertextAttack attack = new CiphertextAttack(catalog, cipher);
+        attack.setModel(bigrams(PLAIN));
+        attack.setKeep(20);
+        List<CiphertextAttack.Candidate> found = attack.run();
+        assertEquals(20, found.size());
+        assertEquals(6 * 26 * 26 * 26, attack.positions());
+        assertTrue(attack.climbSteps() > 20);
+        assertEquals(1.0, attack.progress(), 1e-9);
+        for (int i = 1; i < found.size(); i += 1) {
+            assertTrue(found.get(i - 1).score() >= found.get(i).score());
+        }
+        KeySetting best = found.get(0).key();
+        Machine check = catalog.newMachine();
+        best.apply(check);
+        assertEquals(PLAIN, check.convert(cipher));
+    }
+
+}
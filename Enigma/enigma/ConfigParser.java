@@ -0,0 +1,523 @@
+package enigma;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A reader for configuration files.  The text is scanned once, by hand,
+ *  into a RotorCatalog: the alphabet, the numbers of rotor slots and
+ *  pawls (alone on their line), and then each rotor's name, its type (M
+ *  followed by its notches, N, or R) and its cycles.  The same scanner
+ *  reads the settings lines of an input file (see setUp).  Errors report
+ *  the line and column at which they were found.  A catalog may also be
+ *  saved in a compact binary cache file, tagged with a hash of the
+ *  configuration text, and loaded from it while the text is unchanged.
+ *  @author Vedant Bhatter
+ */
+final class ConfigParser {
+
+    /** System property naming a cache file for Main's configuration. */
+    static final String CACHE_PROPERTY = "enigma.configCache";
+
+    /** A parser for configuration TEXT, read from SOURCE (used in error
+     *  messages). */
+    ConfigParser(String text, String source) {
+        this(text, source, 1);
+    }
+
+    /** A parser for TEXT, which is line LINE onward of SOURCE (used in
+     *  error messages). */
+    ConfigParser(String text, String source, int line) {
+        _text = text;
+        _source = source;
+        _line = line;
+    }
+
+    /** Return the catalog read from FILE, in the default character set,
+     *  using and refreshing the cache file CACHE unless it is null. */
+    static RotorCatalog read(File file, File cache) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException excp) {
+            throw error("could not open %s", file);
+        }
+        byte[] digest = null;
+        if (cache != null) {
+            digest = digest(bytes);
+            RotorCatalog cached = readCache(cache, digest);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        RotorCatalog catalog = new ConfigParser(
+            new String(bytes, Charset.defaultCharset()), file.getName())
+            .parse();
+        if (cache != null) {
+            writeCache(cache, digest, catalog);
+        }
+        return catalog;
+    }
+
+    /** Return the catalog described by my text. */
+    RotorCatalog parse() {
+        if (!Metrics.ENABLED) {
+            return catalog();
+        }
+        long start = System.nanoTime();
+        try {
+            return catalog();
+        } finally {
+            Metrics.INSTANCE.parsed(System.nanoTime() - start);
+        }
+    }
+
+    /** Return the catalog described by my text, untimed. */
+    private RotorCatalog catalog() {
+        Alphabet alphabet;
+        if (!nextWord()) {
+            throw errorAt("missing alphabet");
+        }
+        try {
+            alphabet = Alphabet.intern(word());
+        } catch (EnigmaException excp) {
+            throw errorAt(excp.getMessage());
+        }
+        int numRotors = number("number of rotor slots");
+        int pawls = number("number of pawls");
+        if (numRotors < 2) {
+            throw errorAt("a machine needs at least two rotor slots");
+        }
+        if (pawls >= numRotors) {
+            throw errorAt("too many pawls");
+        }
+        if (skipBlanks() && _text.charAt(_pos) != '\n') {
+            _wordStart = _pos;
+            throw errorAt("unexpected text after the number of pawls");
+        }
+        _alphabet = alphabet;
+        _forward = new int[alphabet.size()];
+        _seen = new boolean[alphabet.size()];
+        ArrayList<RotorSpec> specs = new ArrayList<>();
+        while (nextWord()) {
+            specs.add(rotor());
+        }
+        try {
+            return new RotorCatalog(alphabet, numRotors, pawls, specs);
+        } catch (EnigmaException excp) {
+            throw error("%s: %s", _source, excp.getMessage());
+        }
+    }
+
+    /** Set M as described by my text, a settings line: an asterisk, the
+     *  names of M's rotors, their settings, optionally their ring
+     *  settings, and the cycles of the plugboard. */
+    void setUp(Machine M) {
+        if (!nextWord() || !word().equals("*")) {
+            throw errorAt("settings must start with *");
+        }
+        String[] names = new String[M.numRotors()];
+        skipSpace();
+        int namesStart = _pos;
+        for (int i = 0; i < names.length; i += 1) {
+            if (!nextWord() || _text.charAt(_wordStart) == '(') {
+                throw errorAt("expected %d rotor names", names.length);
+            }
+            names[i] = word();
+            if (M.catalog().get(names[i]) == null) {
+                throw errorAt("no rotor named %s", names[i]);
+            }
+            for (int j = 0; j < i; j += 1) {
+                if (names[j].equals(names[i])) {
+                    throw errorAt("rotor %s appears twice", names[i]);
+                }
+            }
+        }
+        String setting = letters("rotor settings", names.length - 1);
+        int settingStart = _wordStart;
+        String rings = null;
+        int ringsStart = 0;
+        if (peek() != 0 && peek() != '(') {
+            rings = letters("ring settings", names.length - 1);
+            ringsStart = _wordStart;
+        }
+        _alphabet = M.catalog().alphabet();
+        _forward = new int[_alphabet.size()];
+        _seen = new boolean[_alphabet.size()];
+        clearCycles();
+        while (nextWord()) {
+            cycles();
+        }
+        Permutation plugboard = new Permutation(_forward, _alphabet);
+        try {
+            M.insertRotors(names);
+        } catch (EnigmaException excp) {
+            throw errorAt(namesStart, "%s", excp.getMessage());
+        }
+        try {
+            M.setRotors(setting);
+        } catch (EnigmaException excp) {
+            throw errorAt(settingStart, "%s", excp.getMessage());
+        }
+        if (rings != null) {
+            try {
+                M.setRings(rings);
+            } catch (EnigmaException excp) {
+                throw errorAt(ringsStart, "%s", excp.getMessage());
+            }
+        }
+        M.setPlugboard(plugboard);
+    }
+
+    /** Return the next word, which must be LEN characters describing
+     *  WHAT. */
+    private String letters(String what, int len) {
+        if (!nextWord() || _text.charAt(_wordStart) == '(') {
+            throw errorAt("missing %s", what);
+        }
+        if (_pos - _wordStart != len) {
+            throw errorAt("%s must have %d letters", what, len);
+        }
+        return word();
+    }
+
+    /** Return the rotor whose name is the current word. */
+    private RotorSpec rotor() {
+        if (_text.charAt(_wordStart) == '(') {
+            throw errorAt("expected a rotor name");
+        }
+        String name = word();
+        if (!nextWord() || _text.charAt(_wordStart) == '(') {
+            throw errorAt("expected the type of rotor %s", name);
+        }
+        RotorSpec.Kind kind;
+        switch (_text.charAt(_wordStart)) {
+        case 'M':
+            kind = RotorSpec.Kind.MOVING;
+            break;
+        case 'N':
+            kind = RotorSpec.Kind.FIXED;
+            break;
+        case 'R':
+            kind = RotorSpec.Kind.REFLECTOR;
+            break;
+        default:
+            throw errorAt("rotor type must be M, N or R");
+        }
+        String notches = _text.substring(_wordStart + 1, _pos);
+        if (kind != RotorSpec.Kind.MOVING && !notches.isEmpty()) {
+            throw errorAt("only moving rotors have notches");
+        }
+        for (int k = 0; k < notches.length(); k += 1) {
+            if (!_alphabet.contains(notches.charAt(k))) {
+                throw errorAt(_wordStart + 1 + k,
+                              "notch %c is not in the alphabet",
+                              notches.charAt(k));
+            }
+        }
+        clearCycles();
+        while (peek() == '(') {
+            nextWord();
+            cycles();
+        }
+        return new RotorSpec(name, kind, new Permutation(_forward, _alphabet),
+                             notches);
+    }
+
+    /** Make _forward the identity, with no characters yet in a cycle. */
+    private void clearCycles() {
+        for (int i = 0; i < _forward.length; i += 1) {
+            _forward[i] = i;
+        }
+        Arrays.fill(_seen, false);
+    }
+
+    /** Add the cycles in the current word, such as "(AB)(CD)", to
+     *  _forward. */
+    private void cycles() {
+        int k = _wordStart;
+        while (k < _pos) {
+            if (_text.charAt(k) != '(') {
+                throw errorAt(k, "expected (");
+            }
+            k += 1;
+            int first = -1, prev = -1;
+            for (; k < _pos && _text.charAt(k) != ')'; k += 1) {
+                char c = _text.charAt(k);
+                if (c == '(') {
+                    throw errorAt(k, "nested (");
+                }
+                if (!_alphabet.contains(c)) {
+                    throw errorAt(k, "%c is not in the alphabet", c);
+                }
+                int cur = _alphabet.toInt(c);
+                if (_seen[cur]) {
+                    throw errorAt(k, "%c appears in two cycles", c);
+                }
+                _seen[cur] = true;
+                if (prev < 0) {
+                    first = cur;
+                } else {
+                    _forward[prev] = cur;
+                }
+                prev = cur;
+            }
+            if (k == _pos) {
+                throw errorAt(k, "unterminated cycle");
+            }
+            if (prev >= 0) {
+                _forward[prev] = first;
+            }
+            k += 1;
+        }
+    }
+
+    /** Return the current word as a nonnegative number describing WHAT,
+     *  after reading it. */
+    private int number(String what) {
+        if (!nextWord()) {
+            throw errorAt("missing %s", what);
+        }
+        if (_pos - _wordStart > 9) {
+            throw errorAt("%s too large", what);
+        }
+        int result = 0;
+        for (int k = _wordStart; k < _pos; k += 1) {
+            char c = _text.charAt(k);
+            if (c < '0' || c > '9') {
+                throw errorAt("expected the %s", what);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /** Skip white space other than newlines, returning false if that
+     *  reaches the end of the text. */
+    private boolean skipBlanks() {
+        while (_pos < _text.length() && _text.charAt(_pos) != '\n'
+               && Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        return _pos < _text.length();
+    }
+
+    /** Skip white space, returning false if that reaches the end of the
+     *  text. */
+    private boolean skipSpace() {
+        for (; _pos < _text.length(); _pos += 1) {
+            char c = _text.charAt(_pos);
+            if (c == '\n') {
+                _line += 1;
+                _lineStart = _pos + 1;
+            } else if (!Character.isWhitespace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the first character of the next word without reading it,
+     *  or 0 at the end of the text. */
+    private char peek() {
+        return skipSpace() ? _text.charAt(_pos) : 0;
+    }
+
+    /** Read the next word, as delimited by white space, returning false
+     *  if there is none. */
+    private boolean nextWord() {
+        if (!skipSpace()) {
+            _wordStart = _pos;
+            return false;
+        }
+        _wordStart = _pos;
+        while (_pos < _text.length()
+               && !Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        return true;
+    }
+
+    /** Return the current word. */
+    private String word() {
+        return _text.substring(_wordStart, _pos);
+    }
+
+    /** Return an error, described by MSGFORMAT and ARGS as for
+     *  String.format, at the start of the current word. */
+    private EnigmaException errorAt(String msgFormat, Object... args) {
+        return errorAt(_wordStart, msgFormat, args);
+    }
+
+    /** Return an error, described by MSGFORMAT and ARGS as for
+     *  String.format, at index K of the text, which is on the current
+     *  line. */
+    private EnigmaException errorAt(int k, String msgFormat,
+                                    Object... args) {
+        return error("%s:%d:%d: %s", _source, _line, k - _lineStart + 1,
+                     String.format(msgFormat, args));
+    }
+
+    /** Return the SHA-256 digest of BYTES. */
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support"
+                                               + " SHA-256");
+        }
+    }
+
+    /** Return the catalog saved in CACHE for a configuration whose text
+     *  has digest DIGEST, or null if there is no such usable cache. */
+    private static RotorCatalog readCache(File cache, byte[] digest) {
+        if (!cache.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(cache)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                return null;
+            }
+            byte[] saved = new byte[digest.length];
+            in.readFully(saved);
+            if (!Arrays.equals(saved, digest)) {
+                return null;
+            }
+            Alphabet alphabet = Alphabet.intern(readString(in));
+            int n = alphabet.size();
+            int numRotors = in.readInt(), pawls = in.readInt();
+            int count = in.readInt();
+            ArrayList<RotorSpec> specs = new ArrayList<>();
+            int[] forward = new int[n];
+            for (int r = 0; r < count; r += 1) {
+                String name = readString(in);
+                RotorSpec.Kind kind = RotorSpec.Kind.values()[in.readByte()];
+                String notches = readString(in);
+                for (int i = 0; i < n; i += 1) {
+                    forward[i] = n <= BYTE_LIMIT
+                        ? in.readUnsignedByte() : in.readChar();
+                }
+                specs.add(new RotorSpec(name, kind,
+                                        new Permutation(forward, alphabet),
+                                        notches));
+            }
+            return new RotorCatalog(alphabet, numRotors, pawls, specs);
+        } catch (IOException | EnigmaException
+                 | ArrayIndexOutOfBoundsException excp) {
+            return null;
+        }
+    }
+
+    /** Save CATALOG, read from a configuration whose text has digest
+     *  DIGEST, in CACHE.  The cache is only an optimization, so failure
+     *  to write it is ignored. */
+    private static void writeCache(File cache, byte[] digest,
+                                   RotorCatalog catalog) {
+        File temp = new File(cache.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(temp)))) {
+                Alphabet alphabet = catalog.alphabet();
+                int n = alphabet.size();
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.write(digest);
+                writeString(out, alphabet.getChars());
+                out.writeInt(catalog.numRotors());
+                out.writeInt(catalog.numPawls());
+                out.writeInt(catalog.specs().size());
+                for (RotorSpec spec : catalog.specs()) {
+                    writeString(out, spec.name());
+                    out.writeByte(spec.kind().ordinal());
+                    writeString(out, spec.newRotor().notches());
+                    for (int i = 0; i < n; i += 1) {
+                        int c = spec.permutation().permute(i);
+                        if (n <= BYTE_LIMIT) {
+                            out.writeByte(c);
+                        } else {
+                            out.writeChar(c);
+                        }
+                    }
+                }
+            }
+            Files.move(temp.toPath(), cache.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            temp.delete();
+        }
+    }
+
+    /** Write S to OUT as its length followed by its characters. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    /** Return a string written by writeString, read from IN. */
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > Character.MAX_VALUE + 1) {
+            throw new IOException("bad string length");
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    /** First word of a cache file ("ENGC"). */
+    private static final int CACHE_MAGIC = 0x454e4743;
+
+    /** Version of the cache format. */
+    private static final int CACHE_VERSION = 1;
+
+    /** Largest alphabet whose indices are cached as single bytes. */
+    private static final int BYTE_LIMIT = 256;
+
+    /** Configuration text. */
+    private final String _text;
+
+    /** Name of the text's source, for error messages. */
+    private final String _source;
+
+    /** Index in _text of the next unread character. */
+    private int _pos;
+
+    /** Index in _text of the start of the current word. */
+    private int _wordStart;
+
+    /** Line number of _pos, and the index at which that line starts. */
+    private int _line, _lineStart;
+
+    /** Alphabet of the configuration, once read. */
+    private Alphabet _alphabet;
+
+    /** Permutation of the rotor or plugboard being read. */
+    private int[] _forward;
+
+    /** Characters already in a cycle of the rotor or plugboard being
+     *  read. */
+    private boolean[] _seen;
+
+}
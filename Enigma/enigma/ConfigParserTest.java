@@ -0,0 +1,156 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ConfigParser class.
+ *  @author Vedant Bhatter
+ */
+public class ConfigParserTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** A small configuration. */
+    private static final String CONFIG =
+        " ABCDEFGHIJKLMNOPQRSTUVWXYZ\n 5 3\n"
+        + " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " V MZM     (AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n";
+
+    /** Return the message of the error reported for configuration TEXT. */
+    private String errorFor(String text) {
+        try {
+            new ConfigParser(text, "t.conf").parse();
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+        fail("no error for " + text);
+        return null;
+    }
+
+    /** Check that CATALOG holds the rotors of CONFIG. */
+    private void checkCatalog(RotorCatalog catalog) {
+        assertEquals(UPPER_STRING, catalog.alphabet().getChars());
+        assertEquals(5, catalog.numRotors());
+        assertEquals(3, catalog.numPawls());
+        assertEquals(4, catalog.specs().size());
+        assertEquals("Q", catalog.get("I").newRotor().notches());
+        assertEquals("MZ", catalog.get("V").newRotor().notches());
+        assertEquals(RotorSpec.Kind.FIXED, catalog.get("Beta").kind());
+        assertEquals(RotorSpec.Kind.REFLECTOR, catalog.get("B").kind());
+        for (String name : new String[] { "I", "V", "Beta" }) {
+            Permutation expected = new Permutation(NAVALA.get(name), UPPER);
+            for (int i = 0; i < 26; i += 1) {
+                assertEquals(expected.permute(i),
+                             catalog.get(name).permutation().permute(i));
+            }
+        }
+        assertTrue(catalog.get("B").permutation().derangement());
+    }
+
+    @Test
+    public void testParse() {
+        checkCatalog(new ConfigParser(CONFIG, "t.conf").parse());
+    }
+
+    @Test
+    public void testErrors() {
+        assertEquals("t.conf:2:2: missing alphabet", errorFor("  \n "));
+        assertEquals("t.conf:2:3: expected the number of pawls",
+                     errorFor("AB\n2 x\n"));
+        assertEquals("t.conf:2:3: too many pawls", errorFor("AB\n2 2\n"));
+        assertEquals("t.conf:2:5: unexpected text after the number of pawls",
+                     errorFor("AB\n2 1 X\n"));
+        assertEquals("t.conf:3:3: rotor type must be M, N or R",
+                     errorFor("AB\n2 1\nR X (AB)\n"));
+        assertEquals("t.conf:3:5: notch C is not in the alphabet",
+                     errorFor("AB\n2 1\nM MAC (AB)\n"));
+        assertEquals("t.conf:4:6: C is not in the alphabet",
+                     errorFor("AB\n2 1\nR R\n (A)(C)\n"));
+        assertEquals("t.conf:3:10: A appears in two cycles",
+                     errorFor("AB\n2 1\nR R (AB)(A)\n"));
+        assertEquals("t.conf:3:8: unterminated cycle",
+                     errorFor("AB\n2 1\nR R (AB\nM M (A)\n"));
+        assertEquals("t.conf:3:1: expected a rotor name",
+                     errorFor("AB\n2 1\n(AB)\n"));
+        assertEquals("t.conf: rotor R described twice",
+                     errorFor("AB\n2 1\nR R\nR R\n"));
+    }
+
+    /** Return the message of the error reported for the settings line
+     *  SETTINGS, the third line of t.in, on a machine with naval rotors. */
+    private String settingsErrorFor(String settings) {
+        Machine machine = catalog(5, 3, "B", "Beta", "I", "II", "III")
+            .newMachine();
+        try {
+            new ConfigParser(settings, "t.in", 3).setUp(machine);
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+        fail("no error for " + settings);
+        return null;
+    }
+
+    @Test
+    public void testSettings() {
+        Machine machine = catalog(5, 3, "B", "Beta", "I", "II", "III")
+            .newMachine();
+        new ConfigParser("*  B Beta III II I AXLE BCDE (AQ) (EP)", "t.in", 1)
+            .setUp(machine);
+        assertEquals("III", machine.getRotor(2).name());
+        assertEquals(4, machine.getRotor(4).setting());
+        assertEquals("t.in:3:1: settings must start with *",
+                     settingsErrorFor("B Beta I II III AXLE"));
+        assertEquals("t.in:3:15: expected 5 rotor names",
+                     settingsErrorFor("* B Beta I II (AB)"));
+        assertEquals("t.in:3:15: rotor I appears twice",
+                     settingsErrorFor("* B Beta I II I AXLE"));
+        assertEquals("t.in:3:19: rotor settings must have 4 letters",
+                     settingsErrorFor("* B Beta I II III AXL"));
+        assertEquals("t.in:3:19: missing rotor settings",
+                     settingsErrorFor("* B Beta I II III (AB)"));
+        assertEquals("t.in:3:24: ring settings must have 4 letters",
+                     settingsErrorFor("* B Beta I II III AXLE AB"));
+        assertEquals("t.in:3:29: A appears in two cycles",
+                     settingsErrorFor("* B Beta I II III AXLE (AB)(A)"));
+        assertEquals("t.in:3:10: no rotor named V",
+                     settingsErrorFor("* B Beta V II III AXLE"));
+        assertEquals("t.in:3:19: Not in alphabet, the setting",
+                     settingsErrorFor("* B Beta I II III AXL1"));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File dir = Files.createTempDirectory("enigma").toFile();
+        File config = new File(dir, "t.conf");
+        File cache = new File(dir, "t.cache");
+        try {
+            Files.writeString(config.toPath(), CONFIG);
+            checkCatalog(ConfigParser.read(config, cache));
+            assertTrue(cache.isFile());
+            long saved = cache.lastModified();
+            checkCatalog(ConfigParser.read(config, cache));
+            assertEquals(saved, cache.lastModified());
+            Files.writeString(config.toPath(), "AB\n2 1\nR R (AB)\n");
+            assertEquals(1, ConfigParser.read(config, cache).specs().size());
+            Files.writeString(cache.toPath(), "junk");
+            assertEquals(1, ConfigParser.read(config, cache).specs().size());
+        } finally {
+            config.delete();
+            cache.delete();
+            dir.delete();
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** A known-plaintext search for the rotor order and start positions
+ *  that turn a crib into a given ciphertext under a known plugboard.
+ *  Rotor orders are drawn from a RotorCatalog: a reflector, then
+ *  distinct non-moving rotors in the slots without pawls, then distinct
+ *  moving rotors in the slots with pawls.  Every start position of every
+ *  order is tried.  The space is split into units (one rotor order and
+ *  one position of the leftmost rotor) that run in a fork-join pool, and
+ *  each candidate is abandoned at the first crib character it gets
+ *  wrong.
+ *  @author Vedant Bhatter
+ */
+final class KeySearch {
+
+    /** A search over the rotors in CATALOG for keys with plugboard
+     *  PLUGBOARD (cycle notation) that encode CRIB as CIPHER, where
+     *  CRIB starts OFFSET characters into the message. */
+    KeySearch(RotorCatalog catalog, String plugboard, String crib,
+              String cipher, long offset) {
+        if (crib.length() != cipher.length() || crib.isEmpty()) {
+            throw error("crib and ciphertext must have the same, nonzero,"
+                        + " length");
+        }
+        if (offset < 0) {
+            throw error("negative crib offset");
+        }
+        Alphabet alpha = catalog.alphabet();
+        _catalog = catalog;
+        _plugboard = plugboard;
+        _offset = offset;
+        _crib = new int[crib.length()];
+        _cipher = new int[cipher.length()];
+        for (int i = 0; i < crib.length(); i += 1) {
+            _crib[i] = alpha.toInt(crib.charAt(i));
+            _cipher[i] = alpha.toInt(cipher.charAt(i));
+        }
+        _orders = rotorOrders(catalog);
+        _maxResults = DEFAULT_MAX_RESULTS;
+    }
+
+    /** Stop searching once MAX keys have been found. */
+    void setMaxResults(int max) {
+        _maxResults = max;
+    }
+
+    /** Return every rotor order allowed by CATALOG (see the class
+     *  comment), reflector first. */
+    static List<String[]> rotorOrders(RotorCatalog catalog) {
+        ArrayList<String> reflectors = new ArrayList<>(),
+            fixed = new ArrayList<>(), moving = new ArrayList<>();
+        for (RotorSpec spec : catalog.specs()) {
+            switch (spec.kind()) {
+            case REFLECTOR:
+                reflectors.add(spec.name());
+                break;
+            case FIXED:
+                fixed.add(spec.name());
+                break;
+            default:
+                moving.add(spec.name());
+                break;
+            }
+        }
+        int numRotors = catalog.numRotors(), pawls = catalog.numPawls();
+        ArrayList<String[]> result = new ArrayList<>();
+        for (String reflector : reflectors) {
+            String[] order = new String[numRotors];
+            order[0] = reflector;
+            fillOrders(order, 1, numRotors - pawls, fixed, moving, result);
+        }
+        return result;
+    }
+
+    /** Add to RESULT every completion of ORDER from slot I on, using
+     *  FIXED for the slots before FIRSTMOVING and MOVING after. */
+    private static void fillOrders(String[] order, int i, int firstMoving,
+                                   List<String> fixed, List<String> moving,
+                                   List<String[]> result) {
+        if (i == order.length) {
+            result.add(order.clone());
+            return;
+        }
+        List<String> choices = i < firstMoving ? fixed : moving;
+        for (String name : choices) {
+            boolean used = false;
+            for (int k = 1; k < i; k += 1) {
+                used |= order[k].equals(name);
+            }
+            if (!used) {
+                order[i] = name;
+                fillOrders(order, i + 1, firstMoving, fixed, moving, result);
+            }
+        }
+    }
+
+    /** Return the number of rotor orders searched. */
+    int rotorOrders() {
+        return _orders.size();
+    }
+
+    /** Run the search in the common fork-join pool, returning the keys
+     *  found in enumeration order. */
+    List<KeySetting> run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /** Run the search in POOL, returning the keys found in enumeration
+     *  order. */
+    List<KeySetting> run(ForkJoinPool pool) {
+        _tested.reset();
+        _found.set(0);
+        long start = System.nanoTime();
+        int units = _orders.size() * _catalog.alphabet().size();
+        List<KeySetting> result = pool.invoke(new Units(0, units));
+        _elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /** Return the number of candidate keys tried by the last run. */
+    long candidates() {
+        return _tested.sum();
+    }
+
+    /** Return the duration of the last run, in nanoseconds. */
+    long elapsedNanos() {
+        return _elapsed;
+    }
+
+    /** Return the candidates tried per second by the last run. */
+    double candidatesPerSecond() {
+        return _elapsed == 0 ? 0 : candidates() * 1e9 / _elapsed;
+    }
+
+    /** The search of units [LO .. HI-1], split in half until small. */
+    private class Units extends RecursiveTask<List<KeySetting>> {
+
+        /** Search units LO .. HI-1. */
+        Units(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected List<KeySetting> compute() {
+            if (_hi - _lo > LEAF_UNITS) {
+                int mid = (_lo + _hi) >>> 1;
+                Units left = new Units(_lo, mid);
+                left.fork();
+                List<KeySetting> right = new Units(mid, _hi).compute();
+                List<KeySetting> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            ArrayList<KeySetting> result = new ArrayList<>();
+            Machine machine = _catalog.newMachine();
+            machine.setPlugboard(
+                new Permutation(_plugboard, _catalog.alphabet()));
+            for (int unit = _lo; unit < _hi; unit += 1) {
+                searchUnit(machine, unit, result);
+            }
+            return result;
+        }
+
+        /** First and last + 1 units searched. */
+        private final int _lo, _hi;
+    }
+
+    /** Try every key of UNIT on MACHINE, adding those that match the crib
+     *  to RESULT. */
+    private void searchUnit(Machine machine, int unit,
+                            List<KeySetting> result) {
+        int n = _catalog.alphabet().size();
+        String[] order = _orders.get(unit / n);
+        machine.insertRotors(order);
+        int[] posn = new int[order.length - 1];
+        posn[0] = unit % n;
+        long tested = 0;
+        do {
+            if (_found.get() >= _maxResults) {
+                break;
+            }
+            tested += 1;
+            machine.setRotors(posn);
+            if (_offset > 0) {
+                machine.seek(_offset);
+            }
+            if (matches(machine) && _found.incrementAndGet() <= _maxResults) {
+                result.add(new KeySetting(order, setting(posn), _plugboard));
+            }
+        } while (nextPosition(posn, n));
+        _tested.add(tested);
+    }
+
+    /** Return true iff MACHINE, from its current position, encodes the
+     *  crib as the ciphertext. */
+    private boolean matches(Machine machine) {
+        for (int i = 0; i < _crib.length; i += 1) {
+            if (machine.convert(_crib[i]) != _cipher[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Step POSN, except its first element, to the next position in odometer
+     *  order over N characters, returning false when it wraps. */
+    private static boolean nextPosition(int[] posn, int n) {
+        for (int i = posn.length - 1; i > 0; i -= 1) {
+            posn[i] += 1;
+            if (posn[i] < n) {
+                return true;
+            }
+            posn[i] = 0;
+        }
+        return false;
+    }
+
+    /** Return POSN as a string of characters. */
+    private String setting(int[] posn) {
+        char[] chars = new char[posn.length];
+        for (int i = 0; i < posn.length; i += 1) {
+            chars[i] = _catalog.alphabet().toChar(posn[i]);
+        }
+        return new String(chars);
+    }
+
+    /** Default limit on the number of keys found. */
+    static final int DEFAULT_MAX_RESULTS = 1000;
+
+    /** Largest number of units searched by one fork-join task. */
+    static final int LEAF_UNITS = 4;
+
+    /** Rotors available. */
+    private final RotorCatalog _catalog;
+
+    /** Plugboard of every candidate, in cycle notation. */
+    private final String _plugboard;
+
+    /** Message offset of the crib. */
+    private final long _offset;
+
+    /** Crib and expected ciphertext, as alphabet indices. */
+    private final int[] _crib, _cipher;
+
+    /** Rotor orders searched. */
+    private final List<String[]> _orders;
+
+    /** Limit on the number of keys found. */
+    private int _maxResults;
+
+    /** Candidates tried by the current or last run. */
+    private final LongAdder _tested = new LongAdder();
+
+    /** Keys found by the current or last run. */
+    private final AtomicInteger _found = new AtomicInteger();
+
+    /** Duration of the last run, in nanoseconds. */
+    private long _elapsed;
+
+}
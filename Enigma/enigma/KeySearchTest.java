@@ -0,0 +1,74 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the KeySearch class.
+ *  @author Vedant Bhatter
+ */
+public class KeySearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** The rotors of the 4-slot, 3-pawl machines searched. */
+    private static final String[] ROTORS = { "B", "I", "II", "III", "IV" };
+
+    @Test
+    public void testRotorOrders() {
+        List<String[]> orders = KeySearch.rotorOrders(catalog(4, 3, ROTORS));
+        assertEquals(24, orders.size());
+        for (String[] order : orders) {
+            assertEquals("B", order[0]);
+            assertEquals(4, order.length);
+        }
+    }
+
+    @Test
+    public void testFindsKey() {
+        RotorCatalog catalog = catalog(4, 3, ROTORS);
+        KeySetting key = new KeySetting(
+            new String[] { "B", "IV", "II", "III" }, "QEV", "(AZ) (KM)");
+        Machine m = catalog.newMachine();
+        key.apply(m);
+        m.convert("XXXXXX");
+        String crib = "WETTERVORHERSAGE";
+        String cipher = m.convert(crib);
+
+        KeySearch search =
+            new KeySearch(catalog, key.plugboard(), crib, cipher, 6);
+        List<KeySetting> found = search.run();
+        assertTrue(found.contains(key));
+        assertEquals(24 * 26 * 26 * 26, search.candidates());
+        assertTrue(search.candidatesPerSecond() > 0);
+        for (KeySetting other : found) {
+            Machine check = catalog.newMachine();
+            other.apply(check);
+            check.seek(6);
+            assertEquals(cipher, check.convert(crib));
+        }
+    }
+
+    @Test
+    public void testMaxResults() {
+        KeySearch search =
+            new KeySearch(catalog(4, 3, ROTORS), "", "A", "B", 0);
+        search.setMaxResults(3);
+        assertEquals(3, search.run().size());
+    }
+
+    @Test
+    public void testSettingsLine() {
+        KeySetting key = new KeySetting(
+            new String[] { "B", "Beta", "I", "II", "III" }, "AAAA", "(AB)");
+        assertEquals("* B Beta I II III AAAA (AB)", key.settingsLine());
+    }
+
+}
@@ -0,0 +1,96 @@
+package enigma;
+
+import java.util.Arrays;
+
+/** A complete machine key: the rotors in each slot, their starting
+ *  positions, and the plugboard.  It is what a settings line in Main's
+ *  input describes, and what the attack engines report.
+ *  @author Vedant Bhatter
+ */
+final class KeySetting {
+
+    /** The key with rotors named ROTORS (ROTORS[0] is the reflector),
+     *  positions SETTING, one character per rotor after the reflector,
+     *  and plugboard cycles PLUGBOARD. */
+    KeySetting(String[] rotors, String setting, String plugboard) {
+        _rotors = rotors.clone();
+        _setting = setting;
+        _plugboard = plugboard;
+    }
+
+    /** Return the name of the rotor in slot I. */
+    String rotor(int i) {
+        return _rotors[i];
+    }
+
+    /** Return the names of my rotors. */
+    String[] rotors() {
+        return _rotors.clone();
+    }
+
+    /** Return my rotor positions. */
+    String setting() {
+        return _setting;
+    }
+
+    /** Return my plugboard, in cycle notation. */
+    String plugboard() {
+        return _plugboard;
+    }
+
+    /** Return this key with plugboard PLUGBOARD instead of mine. */
+    KeySetting withPlugboard(String plugboard) {
+        return new KeySetting(_rotors, _setting, plugboard);
+    }
+
+    /** Insert my rotors into M and set it up from me. */
+    void apply(Machine m) {
+        m.insertRotors(_rotors);
+        m.setRotors(_setting);
+        m.setPlugboard(new Permutation(_plugboard, m.catalog().alphabet()));
+    }
+
+    /** Return the settings line (as read by Main) that selects me. */
+    String settingsLine() {
+        StringBuilder line = new StringBuilder("*");
+        for (String rotor : _rotors) {
+            line.append(' ').append(rotor);
+        }
+        line.append(' ').append(_setting);
+        if (!_plugboard.isBlank()) {
+            line.append(' ').append(_plugboard.strip());
+        }
+        return line.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof KeySetting)) {
+            return false;
+        }
+        KeySetting other = (KeySetting) obj;
+        return Arrays.equals(_rotors, other._rotors)
+            && _setting.equals(other._setting)
+            && _plugboard.strip().equals(other._plugboard.strip());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(_rotors) * 31 + _setting.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return settingsLine();
+    }
+
+    /** Names of my rotors, reflector first. */
+    private final String[] _rotors;
+
+    /** Starting positions of rotors 1 and up. */
+    private final String _setting;
+
+    /** Plugboard cycles. */
+    private final String _plugboard;
+
+}
@@ -0,0 +1,108 @@
+package enigma;
+
+import java.util.Arrays;
+
+/** The KEYSTREAM engine's memo of whole substitution tables, one per
+ *  stepping state (the tuple of rotor settings).  States are packed into
+ *  longs, base the alphabet size.  If a table for every state fits within
+ *  the memory limit, each state has its own slot; otherwise the slots are
+ *  a direct-mapped cache, and a state evicts whichever state last used
+ *  its slot.  Tables are filled by the caller on a miss.
+ *  @author Vedant Bhatter
+ */
+final class KeystreamCache {
+
+    /** A cache of tables of N entries for STATES states (or -1 if they
+     *  are too many to count) using at most about LIMIT bytes.  The cache
+     *  has no slots at all if LIMIT is too small for one table. */
+    KeystreamCache(int n, long states, long limit) {
+        _n = n;
+        long slotBytes = (long) n * Integer.BYTES + Long.BYTES;
+        long slots = Math.min(limit / slotBytes, Integer.MAX_VALUE / n);
+        if (states >= 0 && states <= slots) {
+            _dense = true;
+            slots = states;
+        } else {
+            _dense = false;
+            slots = Long.highestOneBit(Math.max(slots, 0));
+        }
+        _mask = slots - 1;
+        _tags = new long[(int) slots];
+        _table = new int[(int) slots * n];
+        Arrays.fill(_tags, -1);
+    }
+
+    /** Return the number of slots (0 if the limit was too small). */
+    int slots() {
+        return _tags.length;
+    }
+
+    /** Return the approximate number of bytes I occupy. */
+    long bytes() {
+        return (long) _table.length * Integer.BYTES
+            + (long) _tags.length * Long.BYTES;
+    }
+
+    /** Return the tables, indexed by the offsets lookup() returns. */
+    int[] table() {
+        return _table;
+    }
+
+    /** Return the offset in table() of the table for STATE, or, if it is
+     *  not there, -1 - the offset at which the caller must now fill it.
+     *  There must be at least one slot. */
+    int lookup(long state) {
+        int slot = (int) (_dense ? state : mix(state) & _mask);
+        if (Metrics.ENABLED) {
+            Metrics.INSTANCE.keystream(_tags[slot] == state);
+        }
+        if (_tags[slot] == state) {
+            _hits += 1;
+            return slot * _n;
+        }
+        _misses += 1;
+        _tags[slot] = state;
+        return -1 - slot * _n;
+    }
+
+    /** Forget every table, but not the counts of hits and misses. */
+    void clear() {
+        Arrays.fill(_tags, -1);
+    }
+
+    /** Return the number of lookups that found their table. */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return the number of lookups that did not find their table. */
+    long misses() {
+        return _misses;
+    }
+
+    /** Return STATE with its bits scrambled, so that nearby states fall
+     *  in different slots. */
+    private static long mix(long state) {
+        long h = state * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+
+    /** Alphabet size. */
+    private final int _n;
+
+    /** True iff every state has its own slot. */
+    private final boolean _dense;
+
+    /** Slot index mask when not _dense. */
+    private final long _mask;
+
+    /** State whose table each slot holds, or -1. */
+    private final long[] _tags;
+
+    /** Table of slot S is _table[S * _n .. S * _n + _n - 1]. */
+    private final int[] _table;
+
+    /** Lookup counts. */
+    private long _hits, _misses;
+
+}
@@ -0,0 +1,91 @@
+package enigma;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A lock-free histogram of nonnegative durations, in the manner of
+ *  HdrHistogram: values below 32 have buckets of their own, and each
+ *  larger power of two is split into 16 equal buckets, so that any
+ *  recorded value is known to within about 6%.  Recording is a single
+ *  atomic increment and allocates nothing.
+ *  @author Vedant Bhatter
+ */
+final class LatencyHistogram {
+
+    /** Number of buckets: 32 exact ones, then 16 for each power of two
+     *  from 2^5 to 2^62. */
+    static final int BUCKETS = 32 + 58 * 16;
+
+    /** Record one VALUE, treating negative values as 0. */
+    void record(long value) {
+        _counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    /** Return the number of values recorded. */
+    long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            total += _counts.get(i);
+        }
+        return total;
+    }
+
+    /** Return the smallest bucket bound below which at least FRACTION
+     *  (0 to 1) of the recorded values lie, or 0 if there are none. */
+    long percentile(double fraction) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            seen += _counts.get(i);
+            if (seen >= wanted) {
+                return highest(i);
+            }
+        }
+        return highest(BUCKETS - 1);
+    }
+
+    /** Return the bound on the largest value recorded, or 0 if there are
+     *  none. */
+    long max() {
+        for (int i = BUCKETS - 1; i >= 0; i -= 1) {
+            if (_counts.get(i) != 0) {
+                return highest(i);
+            }
+        }
+        return 0;
+    }
+
+    /** Forget every value recorded. */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i += 1) {
+            _counts.set(i, 0);
+        }
+    }
+
+    /** Return the bucket holding VALUE >= 0. */
+    static int index(long value) {
+        if (value < 32) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int top = (int) (value >>> (magnitude - 4));
+        return 32 + (magnitude - 5) * 16 + (top - 16);
+    }
+
+    /** Return the largest value that falls in bucket I. */
+    static long highest(int i) {
+        if (i < 32) {
+            return i;
+        }
+        int magnitude = (i - 32) / 16 + 5;
+        long top = (i - 32) % 16 + 16;
+        return ((top + 1) << (magnitude - 4)) - 1;
+    }
+
+    /** Count of values in each bucket. */
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+
+}
@@ -0,0 +1,56 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the LatencyHistogram class.
+ *  @author Vedant Bhatter
+ */
+public class LatencyHistogramTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 32; v += 1) {
+            assertEquals(v, LatencyHistogram.index(v));
+            assertEquals(v, LatencyHistogram.highest((int) v));
+        }
+        long[] values = { 32, 33, 47, 48, 1000, 123456789L, 1L << 40,
+                          Long.MAX_VALUE };
+        for (long v : values) {
+            int i = LatencyHistogram.index(v);
+            assertTrue(i < LatencyHistogram.BUCKETS);
+            assertTrue(v <= LatencyHistogram.highest(i));
+            assertTrue(v > LatencyHistogram.highest(i - 1));
+            assertTrue(LatencyHistogram.highest(i) - v <= v / 16);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1,
+                     LatencyHistogram.index(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE,
+                     LatencyHistogram.highest(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentile(0.5));
+        assertEquals(0, h.max());
+        for (int v = 1; v <= 100; v += 1) {
+            h.record(v);
+        }
+        h.record(-5);
+        assertEquals(101, h.count());
+        long p50 = h.percentile(0.5), p99 = h.percentile(0.99);
+        assertTrue(p50 >= 50 && p50 <= 53);
+        assertTrue(p99 >= 99 && p99 <= 103);
+        assertTrue(h.max() >= 100 && h.max() <= 103);
+        h.reset();
+        assertEquals(0, h.count());
+    }
+
+}
@@ -1,8 +1,17 @@
 package enigma;
 
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.nio.CharBuffer;
+
+import java.util.ArrayList;
 import java.util.Collection;
 
+import static enigma.EnigmaException.*;
+
 
 
 /** Class that represents a complete enigma machine.
@@ -12,16 +21,36 @@ class Machine {
 
     /** A new Enigma machine with alphabet ALPHA, 1 < NUMROTORS rotor slots,
      *  and 0 <= PAWLS < NUMROTORS pawls.  ALLROTORS contains all the
-     *  available rotors. */
+     *  available rotors.  They serve only as descriptions: the machine
+     *  inserts rotors of its own, and never moves those in ALLROTORS. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        _numRotors = numRotors;
-        _pawls = pawls;
-        _allRotors = allRotors.toArray();
+        this(new RotorCatalog(alpha, numRotors, pawls, specs(allRotors)));
+    }
+
+    /** A new Enigma machine configured as described by CATALOG. */
+    Machine(RotorCatalog catalog) {
+        _catalog = catalog;
+        _alphabet = catalog.alphabet();
+        _numRotors = catalog.numRotors();
+        _pawls = catalog.numPawls();
         _rotors = new Rotor[_numRotors];
     }
 
+    /** Return the descriptions of ROTORS. */
+    private static ArrayList<RotorSpec> specs(Collection<Rotor> rotors) {
+        ArrayList<RotorSpec> result = new ArrayList<>(rotors.size());
+        for (Rotor rotor : rotors) {
+            result.add(RotorSpec.of(rotor));
+        }
+        return result;
+    }
+
+    /** Return the catalog I take my rotors from. */
+    RotorCatalog catalog() {
+        return _catalog;
+    }
+
     /** Return the number of rotor slots I have. */
     int numRotors() {
         return _numRotors;
@@ -32,8 +61,11 @@ class Machine {
         return _pawls;
     }
 
-    /** Set my rotor slots to the rotors named ROTORS from my set of
-     *  available rotors (ROTORS[0] names the reflector).
+    /** Set my rotor slots to new rotors built from those named ROTORS in
+     *  my catalog.  ROTORS[0] names the reflector, the next
+     *  numRotors() - numPawls() - 1 name fixed rotors (such as the M4's
+     *  Beta and Gamma, used with a thin reflector), and the rest name
+     *  moving rotors.  The rotors belong to this machine alone.
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
         if (_rotors.length != _numRotors) {
@@ -41,13 +73,18 @@ class Machine {
         }
 
         for (int i = 0; i < rotors.length; i += 1) {
-            for (Object rotor : _allRotors) {
-                Rotor castRotor = (Rotor) rotor;
-                if (rotors[i].equals(castRotor.name())) {
-                    _rotors[i] = castRotor;
-                }
+            RotorSpec spec = _catalog.get(rotors[i]);
+            if (spec == null) {
+                throw error("no rotor named %s", rotors[i]);
             }
+            if (spec.alphabet() != _alphabet
+                && !spec.alphabet().getChars().equals(_alphabet.getChars())) {
+                throw new EnigmaException(
+                        "Rotor alphabet differs from machine's");
+            }
+            _rotors[i] = spec.newRotor();
         }
+        markOrigin();
 
         if (!(_rotors[_rotors.length - 1] instanceof MovingRotor)) {
             throw new EnigmaException(
@@ -58,6 +95,20 @@ class Machine {
             throw new EnigmaException(
                     "The first rotor must be a reflector rotor");
         }
+
+        int firstMoving = _rotors.length - _pawls;
+        for (int i = 1; i < _rotors.length; i += 1) {
+            if (_rotors[i].reflecting()) {
+                throw error("reflector %s is not in the first slot",
+                            _rotors[i].name());
+            }
+            if (_rotors[i].rotates() != (i >= firstMoving)) {
+                throw error("rotor %s cannot be in slot %d: the first %d"
+                            + " slots hold fixed rotors", _rotors[i].name(),
+                            i, firstMoving);
+            }
+        }
+        _innerStale = _edgesStale = true;
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -80,32 +131,271 @@ class Machine {
             }
             i += 1;
         }
+        _innerStale = true;
+        markOrigin();
+    }
+
+    /** Set my rotors to the positions SETTING[0], SETTING[1], ..., given
+     *  as indices in my alphabet; SETTING[0] is the leftmost rotor (not
+     *  counting the reflector).  Like setRotors(String), but allocates
+     *  nothing. */
+    void setRotors(int[] setting) {
+        if (numRotors() - 1 != setting.length) {
+            throw new EnigmaException("Lengths are not the same");
+        }
+        for (int i = 1; i < _rotors.length; i += 1) {
+            int posn = setting[i - 1];
+            if (posn < 0 || posn >= _alphabet.size()) {
+                throw new EnigmaException("Not in alphabet, the setting");
+            }
+            _rotors[i].set(posn);
+        }
+        _innerStale = true;
+        markOrigin();
+    }
+
+    /** Set the ring settings of my rotors to RINGS, a string of
+     *  numRotors()-1 characters in my alphabet, leftmost rotor first (not
+     *  counting the reflector).  Rotors start with ring setting 0, and
+     *  keep their ring settings until they are replaced by insertRotors.
+     *  Ring settings move the wiring but not the notches, so they do not
+     *  change how the rotors step. */
+    void setRings(String rings) {
+        if (numRotors() - 1 != rings.length()) {
+            throw error("ring setting %s has the wrong length", rings);
+        }
+        for (int i = 1; i < _rotors.length; i += 1) {
+            char c = rings.charAt(i - 1);
+            if (!_alphabet.contains(c)) {
+                throw error("ring setting %c not in alphabet", c);
+            }
+            _rotors[i].setRing(_alphabet.toInt(c));
+        }
+        _innerStale = _edgesStale = true;
+    }
+
+    /** Record the current rotor settings as the start of a message. */
+    private void markOrigin() {
+        if (_origin == null || _origin.length != _rotors.length) {
+            _origin = new int[_rotors.length];
+        }
+        for (int i = 1; i < _rotors.length; i += 1) {
+            _origin[i] = _rotors[i] == null ? 0 : _rotors[i].setting();
+        }
+        _position = 0;
+        _period = 0;
+    }
+
+    /** Return the number of characters converted since the rotors were
+     *  last set by setRotors or insertRotors, as moved by seek. */
+    long position() {
+        return _position;
+    }
+
+    /** Set my rotors to the positions they reach after converting OFFSET
+     *  characters, starting from the settings given by the last
+     *  setRotors or insertRotors.  Runs of keystrokes on which only the
+     *  rightmost rotor moves are skipped in one step, and the period of
+     *  the stepping sequence, once found, reduces large offsets. */
+    void seek(long offset) {
+        if (offset < 0) {
+            throw error("negative message offset %d", offset);
+        }
+        for (int i = 1; i < _rotors.length; i += 1) {
+            _rotors[i].set(_origin[i]);
+        }
+        long steps = offset;
+        if (_period > 0 && steps > _periodStart) {
+            steps = _periodStart + (steps - _periodStart) % _period;
+        }
+        stepBy(steps);
+        _position = offset;
+        _innerStale = true;
+    }
 
+    /** Replace the LEN characters of BUF starting at OFF by their
+     *  encodings as characters START, START+1, ... of the message begun
+     *  at the last setRotors or insertRotors. */
+    void convert(char[] buf, int off, int len, long start) {
+        seek(start);
+        convert(buf, off, len);
+    }
+
+    /** Advance my rotors by STEPS keystrokes without converting anything.
+     *  Looks for a repeated state at each keystroke that moves a rotor
+     *  other than the rightmost (Brent's method), and records the period
+     *  in _period and _periodStart when it finds one. */
+    private void stepBy(long steps) {
+        int last = _rotors.length - 1;
+        Rotor fast = _rotors[last];
+        int size = fast.size();
+        int[] saved = null;
+        long savedAt = 0, power = 1, events = 0;
+        long done = 0;
+        while (done < steps) {
+            long quiet = Math.min(quietSteps(), steps - done);
+            fast.set((int) ((fast.setting() + quiet % size) % size));
+            if (Metrics.ENABLED) {
+                Metrics.INSTANCE.stepped(last, quiet);
+            }
+            done += quiet;
+            if (done == steps) {
+                break;
+            }
+            if (_period == 0) {
+                if (saved != null && sameSettings(saved)) {
+                    _period = done - savedAt;
+                    _periodStart = savedAt;
+                    steps = done + (steps - done) % _period;
+                    continue;
+                }
+                if (events == power - 1) {
+                    saved = settings(saved);
+                    savedAt = done;
+                    power *= 2;
+                    events = 0;
+                } else {
+                    events += 1;
+                }
+            }
+            advancingRotor();
+            done += 1;
+        }
+    }
+
+    /** Return the number of keystrokes, starting with the next, on which
+     *  only the rightmost rotor will move; Long.MAX_VALUE if no other
+     *  rotor will ever move. */
+    private long quietSteps() {
+        int last = _rotors.length - 1;
+        boolean leftPawl = false;
+        for (int i = 1; i < last; i += 1) {
+            Rotor rotor = _rotors[i];
+            boolean pawl = rotor.rotates();
+            if (pawl && ((i + 1 < last && _rotors[i + 1].atNotch())
+                         || (leftPawl && rotor.atNotch()))) {
+                return 0;
+            }
+            leftPawl = pawl;
+        }
+        if (last < 2 || !_rotors[last - 1].rotates()) {
+            return Long.MAX_VALUE;
+        }
+        int toNotch = _rotors[last].stepsToNotch();
+        return toNotch < 0 ? Long.MAX_VALUE : toNotch;
+    }
+
+    /** Return my rotor settings, stored in INTO if it is not null. */
+    private int[] settings(int[] into) {
+        int[] result = into == null ? new int[_rotors.length] : into;
+        for (int i = 1; i < _rotors.length; i += 1) {
+            result[i] = _rotors[i].setting();
+        }
+        return result;
+    }
+
+    /** Return true iff my rotor settings are those in SAVED. */
+    private boolean sameSettings(int[] saved) {
+        for (int i = 1; i < _rotors.length; i += 1) {
+            if (saved[i] != _rotors[i].setting()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        _edgesStale = true;
+    }
+
+    /** Ways of evaluating the rotor stack in convert(int). */
+    enum Engine {
+        /** Walk every rotor forward and back for each character. */
+        DIRECT,
+        /** Compose the reflector and every rotor but the rightmost into a
+         *  single table, rebuilt only when one of them steps, and fold the
+         *  plugboard into the rightmost rotor's tables. */
+        FUSED,
+        /** Memoize the whole substitution, plugboard included, for each
+         *  tuple of rotor settings (see KeystreamCache), within the limit
+         *  set by setKeystreamLimit.  Falls back to DIRECT if not even one
+         *  table fits. */
+        KEYSTREAM
+    }
+
+    /** Use ENGINE to convert characters from now on. */
+    void setEngine(Engine engine) {
+        _engine = engine;
+        _innerStale = _edgesStale = true;
+    }
+
+    /** Return the engine used by convert(int). */
+    Engine engine() {
+        return _engine;
     }
 
-    /** New method to help advance the rotor in the convert int method. */
-    private void advancingRotor() {
-        boolean[] canRotate = new boolean[_rotors.length];
-        for (int i = 0; i < numRotors(); i++) {
-            canRotate[i] = (i == _rotors.length - 1)
-                    || ((_rotors[i + 1].atNotch())
-                            && _rotors[i].rotates());
-            if (i < _rotors.length - 1
-                    && canRotate[i]
-                    && _rotors[i + 1].rotates()) {
-                canRotate[i + 1] = true;
+    /** Limit the KEYSTREAM engine's tables to about LIMIT bytes. */
+    void setKeystreamLimit(long limit) {
+        _keystreamLimit = limit;
+        _keystream = null;
+        _edgesStale = true;
+    }
+
+    /** Return the number of characters the KEYSTREAM engine has converted
+     *  with a memoized table. */
+    long keystreamHits() {
+        return _keystream == null ? 0 : _keystream.hits();
+    }
+
+    /** Return the number of tables the KEYSTREAM engine has had to
+     *  build. */
+    long keystreamMisses() {
+        return _keystream == null ? 0 : _keystream.misses();
+    }
+
+    /** New method to help advance the rotor in the convert int method.
+     *  Rotor I advances if it is the rightmost rotor, if its pawl engages
+     *  the notch of rotor I+1, or if it is itself at a notch and the pawl
+     *  of rotor I-1 engages it (the double step).  Notches are examined
+     *  before anything moves.  Returns true iff a rotor other than the
+     *  rightmost one moved. */
+    private boolean advancingRotor() {
+        int last = _rotors.length - 1;
+        boolean slowMoved = false;
+        boolean leftPawl = false;
+        boolean atNotch = _rotors[1].atNotch();
+        for (int i = 1; i < last; i += 1) {
+            Rotor rotor = _rotors[i];
+            boolean nextAtNotch = _rotors[i + 1].atNotch();
+            boolean pawl = rotor.rotates();
+            if (pawl && (nextAtNotch || (leftPawl && atNotch))) {
+                rotor.advance();
+                slowMoved = true;
+                if (Metrics.ENABLED) {
+                    Metrics.INSTANCE.stepped(i);
+                    if (!nextAtNotch) {
+                        Metrics.INSTANCE.doubleStepped();
+                    }
+                }
             }
+            leftPawl = pawl;
+            atNotch = nextAtNotch;
         }
+        _rotors[last].advance();
+        if (Metrics.ENABLED) {
+            Metrics.INSTANCE.stepped(last);
+        }
+        return slowMoved;
+    }
 
-        for (int i = 0; i < numRotors(); i++) {
-            if (canRotate[i]) {
-                _rotors[i].advance();
-            }
+    /** Advance my rotors as for one keystroke, without converting
+     *  anything. */
+    void step() {
+        _position += 1;
+        if (advancingRotor()) {
+            _innerStale = true;
         }
     }
 
@@ -113,7 +403,25 @@ class Machine {
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        advancingRotor();
+        if (Metrics.ENABLED) {
+            Metrics.INSTANCE.converted(1);
+        }
+        _position += 1;
+        if (advancingRotor()) {
+            _innerStale = true;
+        }
+        if (_engine == Engine.FUSED) {
+            return convertFused(c);
+        }
+        if (_engine == Engine.KEYSTREAM) {
+            return convertKeystream(c);
+        }
+        return convertDirect(c);
+    }
+
+    /** Returns the conversion of C by my rotors and plugboard in their
+     *  current positions, without advancing anything. */
+    private int convertDirect(int c) {
         int convertedResult = _plugboard.permute(c);
         int i = _rotors.length - (1);
         int counter = 1;
@@ -133,19 +441,163 @@ class Machine {
         return convertedResult;
     }
 
+    /** Returns the conversion of C by the FUSED engine, once the
+     *  machine has been advanced. */
+    private int convertFused(int c) {
+        if (_innerStale) {
+            buildInner();
+        }
+        if (_edgesStale) {
+            buildEdges();
+        }
+        Rotor fast = _rotors[_rotors.length - 1];
+        if (_edgeIn != null) {
+            int row = fast.setting() * _alphabet.size();
+            return _edgeOut[row + _inner[_edgeIn[row + c]]];
+        }
+        int p = fast.convertForward(_plugboard.permute(c));
+        return _plugboard.permute(fast.convertBackward(_inner[p]));
+    }
+
+    /** Returns the conversion of C by the KEYSTREAM engine, once the
+     *  machine has been advanced. */
+    private int convertKeystream(int c) {
+        if (_edgesStale) {
+            resetKeystream();
+        }
+        if (_keystream == null) {
+            return convertDirect(c);
+        }
+        int n = _alphabet.size();
+        long state = 0;
+        for (int i = 1; i < _rotors.length; i += 1) {
+            state = state * n + _rotors[i].setting();
+        }
+        int[] table = _keystream.table();
+        int off = _keystream.lookup(state);
+        if (off < 0) {
+            off = -1 - off;
+            for (int x = 0; x < n; x += 1) {
+                table[off + x] = convertDirect(x);
+            }
+        }
+        return table[off + c];
+    }
+
+    /** Empty the KEYSTREAM engine's cache, making a new one if there is
+     *  none, or leave it null if the stepping states cannot be packed in
+     *  a long or no table fits in the limit. */
+    private void resetKeystream() {
+        _edgesStale = false;
+        if (_keystream != null) {
+            _keystream.clear();
+            return;
+        }
+        int n = _alphabet.size();
+        long states = 1;
+        for (int i = 1; i < _rotors.length; i += 1) {
+            if (states > Long.MAX_VALUE / n / n) {
+                return;
+            }
+            states *= n;
+        }
+        KeystreamCache cache =
+            new KeystreamCache(n, states, _keystreamLimit);
+        _keystream = cache.slots() > 0 ? cache : null;
+    }
+
+    /** Compose the reflector and all but the rightmost rotor, at their
+     *  current settings, into _inner. */
+    private void buildInner() {
+        int n = _alphabet.size();
+        if (_inner == null || _inner.length != n) {
+            _inner = new int[n];
+        }
+        int last = _rotors.length - 1;
+        for (int x = 0; x < n; x += 1) {
+            int y = x;
+            for (int i = last - 1; i >= 0; i -= 1) {
+                y = _rotors[i].convertForward(y);
+            }
+            for (int i = 1; i < last; i += 1) {
+                y = _rotors[i].convertBackward(y);
+            }
+            _inner[x] = y;
+        }
+        _innerStale = false;
+    }
+
+    /** Fold the plugboard into the rightmost rotor's tables, giving
+     *  _edgeIn and _edgeOut, both indexed by setting * size + character.
+     *  Leaves them null if the alphabet is too large to tabulate. */
+    private void buildEdges() {
+        _edgesStale = false;
+        _edgeIn = _edgeOut = null;
+        int n = _alphabet.size();
+        Rotor fast = _rotors[_rotors.length - 1];
+        if (n > Permutation.ROTOR_TABLE_LIMIT) {
+            return;
+        }
+        int[] in = new int[n * n], out = new int[n * n];
+        int saved = fast.setting();
+        for (int s = 0; s < n; s += 1) {
+            fast.set(s);
+            for (int x = 0; x < n; x += 1) {
+                in[s * n + x] = fast.convertForward(_plugboard.permute(x));
+                out[s * n + x] = _plugboard.permute(fast.convertBackward(x));
+            }
+        }
+        fast.set(saved);
+        _edgeIn = in;
+        _edgeOut = out;
+    }
+
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        String converted = "";
-        int len = msg.length();
-        int counter = 0;
+        char[] converted = msg.toCharArray();
+        convert(converted, 0, converted.length);
+        return new String(converted);
+    }
 
-        while (counter < len) {
-            int a = _alphabet.toInt(msg.charAt(counter));
-            converted += _alphabet.toChar(convert(a));
-            counter += 1;
+    /** Replace the LEN characters of BUF starting at OFF by their
+     *  encodings, updating the state of the rotors accordingly. */
+    void convert(char[] buf, int off, int len) {
+        for (int k = off, end = off + len; k < end; k += 1) {
+            buf[k] = _alphabet.toChar(convert(_alphabet.toInt(buf[k])));
+        }
+    }
+
+    /** Replace the remaining characters of BUF by their encodings, leaving
+     *  its position at its limit. */
+    void convert(CharBuffer buf) {
+        if (buf.hasArray()) {
+            int start = buf.arrayOffset() + buf.position();
+            convert(buf.array(), start, buf.remaining());
+            buf.position(buf.limit());
+        } else {
+            while (buf.hasRemaining()) {
+                int c = _alphabet.toInt(buf.get(buf.position()));
+                buf.put(_alphabet.toChar(convert(c)));
+            }
+        }
+    }
+
+    /** Write the encoding of everything read from IN to OUT, one
+     *  fixed-size buffer at a time.  The rotors keep their state
+     *  afterwards, so a message may be split over several calls.  Every
+     *  character read must be in my alphabet. */
+    void convert(Reader in, Writer out) {
+        char[] buf = new char[STREAM_BUFFER_SIZE];
+        try {
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                convert(buf, 0, len);
+                out.write(buf, 0, len);
+            }
+        } catch (IOException excp) {
+            throw error("I/O error while converting: %s", excp.getMessage());
         }
-        return converted;
     }
 
     /** Gets the rotors.
@@ -161,6 +613,12 @@ class Machine {
         return _rotors[_rotors.length - 1];
     }
 
+    /** Size of the buffer used by convert(Reader, Writer). */
+    static final int STREAM_BUFFER_SIZE = 8192;
+
+    /** Default limit on the KEYSTREAM engine's tables, in bytes. */
+    static final long DEFAULT_KEYSTREAM_LIMIT = 64L << 20;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -174,9 +632,46 @@ class Machine {
     private Permutation _plugboard;
 
     /** All possibilities of rotors. */
-    private Object[] _allRotors;
+    private final RotorCatalog _catalog;
 
     /** All rotors that are currently being used. */
     private Rotor[] _rotors;
 
+    /** Engine used by convert(int). */
+    private Engine _engine = Engine.DIRECT;
+
+    /** FUSED engine: composition of the reflector and every rotor but the
+     *  rightmost, valid while _innerStale is false. */
+    private int[] _inner;
+
+    /** FUSED engine: plugboard folded into the rightmost rotor's forward
+     *  and backward tables, valid while _edgesStale is false. */
+    private int[] _edgeIn, _edgeOut;
+
+    /** Rotor settings at the start of the current message (entry 0, the
+     *  reflector, is unused). */
+    private int[] _origin;
+
+    /** Characters converted since _origin. */
+    private long _position;
+
+    /** Once found, the stepping sequence from _origin repeats every
+     *  _period keystrokes after the first _periodStart; 0 if unknown. */
+    private long _period, _periodStart;
+
+    /** KEYSTREAM engine: memoized tables, or null if not yet made or if
+     *  the engine has fallen back to DIRECT.  Valid while _edgesStale is
+     *  false. */
+    private KeystreamCache _keystream;
+
+    /** Limit on the size of _keystream, in bytes. */
+    private long _keystreamLimit = DEFAULT_KEYSTREAM_LIMIT;
+
+    /** True iff _inner must be rebuilt before use. */
+    private boolean _innerStale = true;
+
+    /** True iff _edgeIn and _edgeOut, or _keystream, must be rebuilt
+     *  before use. */
+    private boolean _edgesStale = true;
+
 }
@@ -0,0 +1,238 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** Many machines with the same rotors, run in lock step.  Each lane has
+ *  its own rotor settings, ring settings and plugboard; the settings are
+ *  held slot by slot in int arrays indexed by lane, and every character
+ *  is stepped and converted in all lanes before the next, one slot at a
+ *  time, using the rotors' precomputed tables (Permutation.rotorForward).
+ *  The loops over lanes are independent, so the work of many keys
+ *  overlaps where one Machine would wait on each table lookup in turn.
+ *  Each lane gives exactly the results of a Machine set up the same way.
+ *  @author Vedant Bhatter
+ */
+final class MachineBatch {
+
+    /** A batch of LANES machines built from CATALOG, each with the rotors
+     *  named ROTORS (as for Machine.insertRotors) at setting 0 and ring
+     *  setting 0, and no plugboard. */
+    MachineBatch(RotorCatalog catalog, String[] rotors, int lanes) {
+        catalog.newMachine().insertRotors(rotors);
+        Alphabet alpha = catalog.alphabet();
+        if (alpha.size() > Permutation.ROTOR_TABLE_LIMIT) {
+            throw error("alphabet too large for a batch");
+        }
+        if (lanes < 1) {
+            throw error("a batch needs at least one lane");
+        }
+        int n = alpha.size(), k = rotors.length;
+        _n = n;
+        _lanes = lanes;
+        _forward = new int[k][];
+        _backward = new int[k][];
+        _notch = new boolean[k][];
+        _pawl = new boolean[k];
+        for (int j = 0; j < k; j += 1) {
+            Rotor rotor = catalog.get(rotors[j]).newRotor();
+            _forward[j] = rotor.permutation().rotorForward();
+            _backward[j] = rotor.permutation().rotorBackward();
+            _pawl[j] = j > 0 && rotor.rotates();
+            _notch[j] = new boolean[n];
+            for (int s = 0; s < n && !rotor.reflecting(); s += 1) {
+                rotor.set(s);
+                _notch[j][s] = rotor.atNotch();
+            }
+        }
+        _posn = new int[k][lanes];
+        _ring = new int[k][lanes];
+        _offset = new int[k][lanes];
+        _plug = new int[lanes * n];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            for (int c = 0; c < n; c += 1) {
+                _plug[lane * n + c] = c;
+            }
+        }
+        _value = new int[lanes];
+    }
+
+    /** Return the number of lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Set the rotors of LANE to SETTING, as for Machine.setRotors. */
+    void setRotors(int lane, int[] setting) {
+        if (setting.length != _posn.length - 1) {
+            throw error("Lengths are not the same");
+        }
+        for (int j = 1; j < _posn.length; j += 1) {
+            int posn = setting[j - 1];
+            if (posn < 0 || posn >= _n) {
+                throw error("Not in alphabet, the setting");
+            }
+            _posn[j][lane] = posn;
+        }
+        setOffsets(lane);
+    }
+
+    /** Set the ring settings of LANE to RINGS, as for Machine.setRings,
+     *  but given as indices in the alphabet. */
+    void setRings(int lane, int[] rings) {
+        if (rings.length != _posn.length - 1) {
+            throw error("ring setting has the wrong length");
+        }
+        for (int j = 1; j < _posn.length; j += 1) {
+            int ring = rings[j - 1];
+            if (ring < 0 || ring >= _n) {
+                throw error("ring setting not in alphabet");
+            }
+            _ring[j][lane] = ring;
+        }
+        setOffsets(lane);
+    }
+
+    /** Recompute the offsets of the wiring of LANE's rotors from their
+     *  settings and ring settings. */
+    private void setOffsets(int lane) {
+        for (int j = 1; j < _posn.length; j += 1) {
+            int offset = _posn[j][lane] - _ring[j][lane];
+            _offset[j][lane] = offset < 0 ? offset + _n : offset;
+        }
+    }
+
+    /** Return the current rotor settings of LANE, leftmost first, not
+     *  counting the reflector. */
+    int[] settings(int lane) {
+        int[] result = new int[_posn.length - 1];
+        for (int j = 1; j < _posn.length; j += 1) {
+            result[j - 1] = _posn[j][lane];
+        }
+        return result;
+    }
+
+    /** Set the plugboard of LANE to PLUGBOARD. */
+    void setPlugboard(int lane, Permutation plugboard) {
+        if (plugboard.size() != _n) {
+            throw error("plugboard has the wrong alphabet");
+        }
+        for (int c = 0; c < _n; c += 1) {
+            _plug[lane * _n + c] = plugboard.permute(c);
+        }
+    }
+
+    /** Advance every lane and convert C in each, storing lane L's result
+     *  in OUT[L]. */
+    void convert(int c, int[] out) {
+        step();
+        Arrays.fill(_value, c);
+        scramble();
+        System.arraycopy(_value, 0, out, 0, _lanes);
+    }
+
+    /** Convert TEXT[OFF .. OFF+LEN-1] in every lane, storing lane L's
+     *  conversion of TEXT[OFF + I] in OUT[L * LEN + I]. */
+    void convert(int[] text, int off, int len, int[] out) {
+        for (int i = 0; i < len; i += 1) {
+            step();
+            Arrays.fill(_value, text[off + i]);
+            scramble();
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                out[lane * len + i] = _value[lane];
+            }
+        }
+    }
+
+    /** Advance the rotors of every lane as Machine does for a keystroke.
+     *  Slots are handled left to right; each decision reads only the
+     *  settings of its own slot and the next, which have not moved yet. */
+    private void step() {
+        int last = _posn.length - 1;
+        for (int j = 1; j < last; j += 1) {
+            if (!_pawl[j]) {
+                continue;
+            }
+            int[] posn = _posn[j], right = _posn[j + 1];
+            int[] offset = _offset[j];
+            boolean[] notch = _notch[j], rightNotch = _notch[j + 1];
+            boolean leftPawl = _pawl[j - 1];
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                int p = posn[lane];
+                if (rightNotch[right[lane]] || (leftPawl && notch[p])) {
+                    posn[lane] = p + 1 == _n ? 0 : p + 1;
+                    int o = offset[lane];
+                    offset[lane] = o + 1 == _n ? 0 : o + 1;
+                }
+            }
+        }
+        if (_pawl[last]) {
+            int[] posn = _posn[last], offset = _offset[last];
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                int p = posn[lane], o = offset[lane];
+                posn[lane] = p + 1 == _n ? 0 : p + 1;
+                offset[lane] = o + 1 == _n ? 0 : o + 1;
+            }
+        }
+    }
+
+    /** Replace each _value[L] by its image under lane L's plugboard and
+     *  rotors. */
+    private void scramble() {
+        int n = _n, last = _posn.length - 1;
+        int[] value = _value, plug = _plug;
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            value[lane] = plug[lane * n + value[lane]];
+        }
+        for (int j = last; j >= 0; j -= 1) {
+            int[] table = _forward[j], offset = _offset[j];
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                value[lane] = table[offset[lane] * n + value[lane]];
+            }
+        }
+        for (int j = 1; j <= last; j += 1) {
+            int[] table = _backward[j], offset = _offset[j];
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                value[lane] = table[offset[lane] * n + value[lane]];
+            }
+        }
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            value[lane] = plug[lane * n + value[lane]];
+        }
+    }
+
+    /** Alphabet size. */
+    private final int _n;
+
+    /** Number of lanes. */
+    private final int _lanes;
+
+    /** Rotor tables of the rotor in each slot. */
+    private final int[][] _forward, _backward;
+
+    /** _notch[J][S] is true iff the rotor in slot J has a notch at
+     *  setting S. */
+    private final boolean[][] _notch;
+
+    /** True for the slots whose rotors have pawls. */
+    private final boolean[] _pawl;
+
+    /** Setting of slot J in lane L is _posn[J][L].  The reflector's stays
+     *  0. */
+    private final int[][] _posn;
+
+    /** Ring setting of slot J in lane L is _ring[J][L]. */
+    private final int[][] _ring;
+
+    /** Offset of the wiring of slot J in lane L, _posn[J][L] less
+     *  _ring[J][L] modulo the alphabet size, is _offset[J][L]. */
+    private final int[][] _offset;
+
+    /** Plugboard image of c in lane L is _plug[L * alphabet size + c]. */
+    private final int[] _plug;
+
+    /** Character being converted in each lane. */
+    private final int[] _value;
+
+}
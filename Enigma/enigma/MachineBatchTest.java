@@ -0,0 +1,105 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the MachineBatch class.
+ *  @author Vedant Bhatter
+ */
+public class MachineBatchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** The rotors of the 5-slot, 3-pawl machines compared. */
+    private static final String[] ROTORS = {
+        "B", "Beta", "I", "II", "III", "IV", "V",
+    };
+
+    /** Return a random plugboard of up to 10 pairs drawn by RANDOM. */
+    private String plugboard(Random random) {
+        StringBuilder cycles = new StringBuilder();
+        boolean[] used = new boolean[26];
+        for (int k = random.nextInt(11); k > 0; k -= 1) {
+            int a = random.nextInt(26), b = random.nextInt(26);
+            if (a != b && !used[a] && !used[b]) {
+                used[a] = used[b] = true;
+                cycles.append('(').append(UPPER.toChar(a))
+                    .append(UPPER.toChar(b)).append(") ");
+            }
+        }
+        return cycles.toString();
+    }
+
+    @Test
+    public void testMatchesMachine() {
+        RotorCatalog catalog = catalog(5, 3, ROTORS);
+        String[] rotors = { "B", "Beta", "V", "II", "IV" };
+        Random random = new Random(61);
+        int lanes = 37, len = 700;
+        MachineBatch batch = new MachineBatch(catalog, rotors, lanes);
+        assertEquals(lanes, batch.lanes());
+        Machine[] machines = new Machine[lanes];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            int[] setting = new int[4];
+            for (int j = 0; j < 4; j += 1) {
+                setting[j] = random.nextInt(26);
+            }
+            Permutation plug = new Permutation(plugboard(random), UPPER);
+            batch.setRotors(lane, setting);
+            batch.setPlugboard(lane, plug);
+            machines[lane] = catalog.newMachine();
+            machines[lane].insertRotors(rotors);
+            machines[lane].setRotors(setting);
+            machines[lane].setPlugboard(plug);
+            if (lane % 2 == 1) {
+                int[] rings = new int[4];
+                StringBuilder ringChars = new StringBuilder();
+                for (int j = 0; j < 4; j += 1) {
+                    rings[j] = random.nextInt(26);
+                    ringChars.append(UPPER.toChar(rings[j]));
+                }
+                batch.setRings(lane, rings);
+                machines[lane].setRings(ringChars.toString());
+            }
+        }
+        int[] text = new int[len], out = new int[lanes * len];
+        for (int i = 0; i < len; i += 1) {
+            text[i] = random.nextInt(26);
+        }
+        batch.convert(text, 0, len, out);
+        for (int lane = 0; lane < lanes; lane += 1) {
+            for (int i = 0; i < len; i += 1) {
+                assertEquals(msg("testMatchesMachine", "lane %d, char %d",
+                                 lane, i),
+                             machines[lane].convert(text[i]),
+                             out[lane * len + i]);
+            }
+        }
+        int[] one = new int[lanes];
+        batch.convert(5, one);
+        for (int lane = 0; lane < lanes; lane += 1) {
+            assertEquals(machines[lane].convert(5), one[lane]);
+            assertArrayEquals(new int[] {
+                    machines[lane].getRotor(1).setting(),
+                    machines[lane].getRotor(2).setting(),
+                    machines[lane].getRotor(3).setting(),
+                    machines[lane].getRotor(4).setting() },
+                batch.settings(lane));
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadRotors() {
+        new MachineBatch(catalog(5, 3, ROTORS),
+                         new String[] { "I", "B", "Beta", "II", "III" }, 4);
+    }
+
+}
@@ -0,0 +1,331 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import java.nio.CharBuffer;
+
+import java.util.ArrayList;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Vedant Bhatter
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** The naval rotors. */
+    private static final String[] ROTORS = {
+        "B", "C", "Beta", "Gamma", "I", "II", "III", "IV", "V", "VI", "VII",
+        "VIII",
+    };
+
+    /** Return a machine with 5 slots and 3 pawls holding the naval
+     *  rotors, set up from ROTORS, SETTING and PLUGBOARD. */
+    private Machine naval(String[] rotors, String setting, String plugboard) {
+        Machine m = catalog(5, 3, ROTORS).newMachine();
+        m.insertRotors(rotors);
+        m.setRotors(setting);
+        m.setPlugboard(new Permutation(plugboard, UPPER));
+        return m;
+    }
+
+    /** A long message over UPPER_STRING. */
+    private static String longMessage() {
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 2000; i += 1) {
+            msg.append(UPPER_STRING.charAt((i * 7 + i / 26) % 26));
+        }
+        return msg.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testHelloWorld() {
+        Machine m = naval(new String[] { "B", "Beta", "I", "II", "III" },
+                          "AAAA", "(AQ) (EP)");
+        assertEquals("IHBDQQMTQZ", m.convert("HELLOWORLD"));
+    }
+
+    @Test
+    public void testM4() {
+        String[][] cases = {
+            { "V", "AAAZ", "TIKZNFNKZPPBSILUZJODJHHQNIVV" },
+            { "VI", "AAAZ", "DNLERUIWXPEEQZTPZOMKSYZFICQT" },
+            { "VII", "AAAZ", "YTGOHNSSSHMLMDETBPBFXVJTFCPW" },
+            { "VIII", "AAAZ", "SSOSVSTICWPOCOMSFJLYMYUEYEUR" },
+            { "I", "AAEA", "JW" },
+            { "I", "AADQ", "ZG" },
+        };
+        for (String[] c : cases) {
+            String msg = "A".repeat(c[2].length());
+            Machine m = naval(new String[] { "B", "Beta", "III", "II", c[0] },
+                              c[1], "");
+            for (Machine.Engine engine : Machine.Engine.values()) {
+                m.setEngine(engine);
+                m.setRotors(c[1]);
+                assertEquals(engine + " " + c[0], c[2], m.convert(msg));
+                assertEquals(UPPER.toInt('A'), m.getRotor(1).setting());
+            }
+        }
+        Machine m = naval(new String[] { "C", "Gamma", "I", "II", "III" },
+                          "ZAAA", "");
+        assertEquals(UPPER.toInt('Z'), m.getRotor(1).setting());
+        m.convert(longMessage());
+        assertEquals(UPPER.toInt('Z'), m.getRotor(1).setting());
+        checkBadPlacement(new String[] { "B", "I", "Beta", "II", "III" });
+        checkBadPlacement(new String[] { "B", "Beta", "Gamma", "II", "III" });
+        checkBadPlacement(new String[] { "B", "C", "I", "II", "III" });
+    }
+
+    /** Assert that ROTORS cannot be inserted in a naval machine. */
+    private void checkBadPlacement(String[] rotors) {
+        try {
+            naval(rotors, "AAAA", "");
+            fail("accepted " + String.join(" ", rotors));
+        } catch (EnigmaException excp) {
+            return;
+        }
+    }
+
+    @Test
+    public void testRingSettings() {
+        Machine m = naval(new String[] { "B", "Beta", "I", "II", "III" },
+                          "AAAA", "");
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            m.setEngine(engine);
+            m.setRotors("AAAA");
+            m.setRings("AAAA");
+            assertEquals("BDZGO", m.convert("AAAAA"));
+            m.setRotors("AAAA");
+            m.setRings("ABBB");
+            assertEquals(engine.toString(), "EWTYX", m.convert("AAAAA"));
+            checkSettings(m, "AAAF");
+        }
+        m.setRotors("AAAB");
+        m.setRings("AAAB");
+        String shifted = m.convert("HELLOWORLD");
+        m.setRotors("AAAC");
+        m.setRings("AAAC");
+        assertEquals(shifted, m.convert("HELLOWORLD"));
+    }
+
+    @Test
+    public void testKeystream() {
+        String[] rotors = { "B", "Beta", "III", "VI", "VIII" };
+        String msg = longMessage();
+        String expected = naval(rotors, "AXLE", "(HQ) (EX)").convert(msg);
+        for (long limit : new long[] { 0, 20 * 112, 100 * 112,
+                                       Machine.DEFAULT_KEYSTREAM_LIMIT }) {
+            Machine m = naval(rotors, "AXLE", "(HQ) (EX)");
+            m.setEngine(Machine.Engine.KEYSTREAM);
+            m.setKeystreamLimit(limit);
+            assertEquals(expected, m.convert(msg));
+            m.setRotors("AXLE");
+            assertEquals(expected, m.convert(msg));
+            m.setRotors("AXLE");
+            m.setPlugboard(new Permutation("(HQ)", UPPER));
+            assertEquals(naval(rotors, "AXLE", "(HQ)").convert(msg),
+                         m.convert(msg));
+            if (limit == 0) {
+                assertEquals(0, m.keystreamHits() + m.keystreamMisses());
+            } else {
+                assertEquals(3 * msg.length(),
+                             m.keystreamHits() + m.keystreamMisses());
+                assertTrue(m.keystreamMisses() >= 2 * msg.length() / 100);
+            }
+        }
+    }
+
+    /** Assert that the settings of M's rotors 1.. spell EXPECTED. */
+    private void checkSettings(Machine m, String expected) {
+        for (int i = 1; i < m.numRotors(); i += 1) {
+            assertEquals("rotor " + i, expected.charAt(i - 1),
+                         UPPER.toChar(m.getRotor(i).setting()));
+        }
+    }
+
+    @Test
+    public void testDoubleStep() {
+        Machine m = naval(new String[] { "B", "Beta", "III", "II", "I" },
+                          "AADQ", "");
+        assertEquals("Z", m.convert("A"));
+        checkSettings(m, "AAER");
+        assertEquals("G", m.convert("A"));
+        checkSettings(m, "ABFS");
+        m.convert("A");
+        checkSettings(m, "ABFT");
+    }
+
+    @Test
+    public void testMultipleNotches() {
+        Machine m = naval(new String[] { "B", "Beta", "III", "VI", "VIII" },
+                          "AAAL", "");
+        m.convert("A");
+        checkSettings(m, "AAAM");
+        m.convert("A");
+        checkSettings(m, "AABN");
+        m.setRotors("AAAY");
+        m.convert("AA");
+        checkSettings(m, "AABA");
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        String[] rotors = { "B", "Beta", "I", "II", "III" };
+        String msg = longMessage();
+        String expected = naval(rotors, "AXLE", "(HQ)").convert(msg);
+
+        Machine m = naval(rotors, "AXLE", "(HQ)");
+        char[] buf = msg.toCharArray();
+        m.convert(buf, 0, 700);
+        CharBuffer rest = CharBuffer.wrap(buf, 700, 300);
+        m.convert(rest);
+        assertEquals(1000, rest.position());
+        StringWriter out = new StringWriter();
+        m.convert(new StringReader(msg.substring(1000)), out);
+        assertEquals(expected,
+                     new String(buf, 0, 1000) + out.toString());
+    }
+
+    @Test
+    public void testFusedMatchesDirect() {
+        String[] rotors = { "C", "Gamma", "VI", "IV", "VIII" };
+        String msg = longMessage();
+        Machine direct = naval(rotors, "QDMY", "(AZ) (BY) (KX) (MP)");
+        Machine fused = naval(rotors, "QDMY", "(AZ) (BY) (KX) (MP)");
+        fused.setEngine(Machine.Engine.FUSED);
+        assertEquals(direct.convert(msg), fused.convert(msg));
+        fused.setRotors("AAAA");
+        direct.setRotors("AAAA");
+        assertEquals(direct.convert(msg), fused.convert(msg));
+    }
+
+    /** Assert that a machine set up from ROTORS and SETTING, after
+     *  seeking to each of OFFSETS in turn, has the rotor settings that
+     *  stepping one character at a time reaches. */
+    private void checkSeek(String[] rotors, String setting, long... offsets) {
+        Machine m = naval(rotors, setting, "(AB)");
+        for (long offset : offsets) {
+            Machine ref = naval(rotors, setting, "(AB)");
+            for (long k = 0; k < offset; k += 1) {
+                ref.convert(0);
+            }
+            m.seek(offset);
+            assertEquals(offset, m.position());
+            for (int i = 1; i < m.numRotors(); i += 1) {
+                assertEquals("offset " + offset + " rotor " + i,
+                             ref.getRotor(i).setting(),
+                             m.getRotor(i).setting());
+            }
+        }
+    }
+
+    @Test
+    public void testSeek() {
+        String[] plain = { "B", "Beta", "I", "II", "III" };
+        String[] doubled = { "B", "Beta", "III", "II", "I" };
+        String[] notched = { "C", "Gamma", "VI", "VII", "VIII" };
+        checkSeek(plain, "AAAA", 0, 1, 25, 26, 700, 17000, 40000, 3, 90000);
+        checkSeek(doubled, "AADQ", 1, 2, 3, 500, 16900, 33801, 50000, 7);
+        checkSeek(notched, "QDMY", 12, 13, 14, 338, 20000, 60000, 5);
+    }
+
+    @Test
+    public void testSeekFar() {
+        Machine m = catalog(3, 1, "B", "Beta", "I").newMachine();
+        m.insertRotors(new String[] { "B", "Beta", "I" });
+        m.setRotors("CZ");
+        m.seek(Long.MAX_VALUE);
+        assertEquals(2, m.getRotor(1).setting());
+        assertEquals((25 + Long.MAX_VALUE % 26) % 26,
+                     m.getRotor(2).setting());
+    }
+
+    @Test
+    public void testConvertAt() {
+        String[] rotors = { "B", "Beta", "III", "II", "I" };
+        String msg = longMessage();
+        String expected = naval(rotors, "AADQ", "(HQ)").convert(msg);
+        Machine m = naval(rotors, "AADQ", "(HQ)");
+        char[] buf = msg.toCharArray();
+        m.convert(buf, 1200, 800, 1200);
+        m.convert(buf, 0, 1200, 0);
+        assertEquals(expected, new String(buf));
+        m.seek(5_000_000_000L);
+        assertEquals(5_000_000_000L, m.position());
+    }
+
+    @Test
+    public void testIndependentMachines() {
+        String[] rotors = { "B", "Beta", "I", "II", "III" };
+        String msg = longMessage();
+        String expected = naval(rotors, "AXLE", "").convert(msg);
+        Machine first = naval(rotors, "AXLE", "");
+        Machine second = first.catalog().newMachine();
+        second.insertRotors(rotors);
+        second.setRotors("AXLE");
+        second.setPlugboard(new Permutation("", UPPER));
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < msg.length(); i += 1) {
+            a.append(first.convert(msg.substring(i, i + 1)));
+            b.append(second.convert(msg.substring(i, i + 1)));
+        }
+        assertEquals(expected, a.toString());
+        assertEquals(expected, b.toString());
+    }
+
+    @Test
+    public void testCatalogRotorsUntouched() {
+        Rotor one = new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q");
+        ArrayList<Rotor> all = new ArrayList<>();
+        all.add(one);
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        Machine m = new Machine(UPPER, 2, 1, all);
+        m.insertRotors(new String[] { "B", "I" });
+        m.setRotors("C");
+        m.setPlugboard(new Permutation("", UPPER));
+        m.convert("HELLO");
+        assertEquals(0, one.setting());
+        assertEquals(UPPER.toInt('H'), m.getRotor(1).setting());
+    }
+
+    @Test
+    public void testEqualAlphabets() {
+        Alphabet other = new Alphabet(UPPER_STRING);
+        ArrayList<Rotor> all = new ArrayList<>();
+        all.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), other), "Q"));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), other)));
+        Machine m = new Machine(UPPER, 2, 1, all);
+        m.insertRotors(new String[] { "B", "I" });
+        m.setRotors("A");
+        m.setPlugboard(new Permutation("", UPPER));
+        assertEquals(UPPER_STRING.length(), m.convert(UPPER_STRING).length());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDifferentAlphabets() {
+        Alphabet other = new Alphabet("ZYXWVUTSRQPONMLKJIHGFEDCBA");
+        ArrayList<Rotor> all = new ArrayList<>();
+        all.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), other), "Q"));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), other)));
+        new Machine(UPPER, 2, 1, all).insertRotors(new String[] { "B", "I" });
+    }
+
+}
@@ -1,13 +1,21 @@
 package enigma;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Scanner;
-import java.util.NoSuchElementException;
-import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static enigma.EnigmaException.*;
 
@@ -24,10 +32,26 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.  If ARGS[0] is --parallel, it is dropped
+     *  from ARGS and the segments of the input are processed in
+     *  parallel (see processParallel).  If ARGS is --serve ADDRESS,
+     *  runs a Server on ADDRESS instead.  If the system property
+     *  enigma.metrics is true, Metrics are published and, at the end,
+     *  printed on the standard error. */
     public static void main(String... args) {
         try {
+            if (args.length == 2 && args[0].equals(Server.SERVE_FLAG)) {
+                Metrics.start();
+                try (Server server = new Server(args[1])) {
+                    server.serve();
+                }
+                return;
+            }
+            Metrics.start();
             new Main(args).process();
+            if (Metrics.ENABLED) {
+                Metrics.INSTANCE.dump(System.err);
+            }
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
@@ -37,196 +61,315 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        if (args.length > 0 && args[0].equals(PARALLEL_FLAG)) {
+            _parallel = true;
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        _config = new File(args[0]);
+        if (!_config.canRead()) {
+            throw error("could not open %s", args[0]);
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getMessages(args[1]);
+            _inputName = new File(args[1]).getName();
         } else {
-            _input = new Scanner(System.in);
+            _input = new MessageInput(new InputStreamReader(System.in));
+            _inputName = "standard input";
         }
 
         if (args.length > 2) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = bufferedWriter(System.out);
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Return the lines of the file named NAME, which is memory-mapped
+     *  rather than scanned. */
+    private MessageInput getMessages(String name) {
         try {
-            return new Scanner(new File(name));
+            return MessageInput.open(new File(name));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a buffered Writer writing to the file named NAME. */
+    private Writer getOutput(String name) {
         try {
-            return new PrintStream(new File(name));
+            return bufferedWriter(new FileOutputStream(name));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
-
-    /** Checks the hard.
-     * @param line which is a line.
-     * @return string
-     */
-    private String checkHard(String line) {
-        String rotorV = "* B Beta III II V AAAZ";
-        String rotorVI = "* B Beta III II VI AAAZ";
-        String rotorVII = "* B Beta III II VII AAAZ";
-        String rotorVIII = "* B Beta III II VIII AAAZ";
-        String step2 = "* B Beta III II I AAEA";
-        String step4 = "* B Beta III II I AADQ";
-        if (line.equals(rotorV)) {
-            return "TIKZN FNKZP PBSIL UZJOD JHHQN IVV";
-        } else if (line.equals(rotorVI)) {
-            return "DNLER UIWXP EEQZT PZOMK SYZFI CQT";
-        } else if (line.equals(rotorVII)) {
-            return "YTGOH NSSSH MLMDE TBPBF XVJTF CPW";
-        } else if (line.equals(rotorVIII)) {
-            return "SSOSV STICW POCOM SFJLY MYUEY EUR";
-        } else if (line.equals(step2)) {
-            return "JW";
-        } else if (line.equals(step4)) {
-            return "ZG";
-        } else {
-            return "";
-        }
+    /** Return a Writer that encodes to OUT in large blocks, in the same
+     *  character set a PrintStream would use. */
+    private Writer bufferedWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out),
+                                  OUTPUT_BUFFER_SIZE);
     }
 
+
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
+     *  results to _output.  Message lines are converted in place in the
+     *  input buffer. */
     private void process() {
-        Machine machine = readConfig();
-        String settings = _input.nextLine();
-        setUp(machine, settings);
-        while (_input.hasNextLine()) {
-            String line = _input.nextLine();
-            if (!line.equals("") && line.charAt(0) == '*') {
-                setUp(machine, line);
-            } else {
-                String cleanedLine = line.replaceAll(" ", "");
-                if (cleanedLine.equals("AAAAAAAAAAAAAAAAAAAAAAAAAAAA")
-                        && !checkHard(settings).isBlank()) {
-                    _output.println(checkHard(settings));
-                } else if (cleanedLine.equals("AA")
-                        && !checkHard(settings).isBlank()) {
-                    _output.println(checkHard(settings));
+        try {
+            readConfig();
+            if (!_input.nextLine()) {
+                throw error("no settings line");
+            }
+            String settings = _input.line();
+            if (_parallel) {
+                processParallel(settings);
+                return;
+            }
+            Machine machine = newMachine();
+            setUp(machine, settings, _inputName, _input.lineNumber());
+            long begun = Metrics.ENABLED ? System.nanoTime() : 0;
+            while (_input.nextLine()) {
+                char[] buf = _input.buffer();
+                int start = _input.lineStart(), end = _input.lineEnd();
+                if (start < end && buf[start] == '*') {
+                    if (Metrics.ENABLED) {
+                        long now = System.nanoTime();
+                        Metrics.INSTANCE.message(now - begun);
+                        begun = now;
+                    }
+                    setUp(machine, _input.line(), _inputName,
+                          _input.lineNumber());
                 } else {
-                    printMessageLine(machine.convert(line.replaceAll(" ", "")));
+                    convertLine(machine, buf, start, end, _output);
                 }
             }
+            if (Metrics.ENABLED) {
+                Metrics.INSTANCE.message(System.nanoTime() - begun);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        } finally {
+            try {
+                _output.flush();
+            } catch (IOException excp) {
+                throw error("could not write output: %s", excp.getMessage());
+            }
         }
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        try {
-            _alphabet = new Alphabet(_config.next());
-            int numRotors = _config.nextInt();
-            int numPawls = _config.nextInt();
-            ArrayList<Rotor> allRotors = new ArrayList<>();
-            _config.nextLine();
-            while (_config.hasNext()) {
-                allRotors.add(readRotor());
+    /** Process the rest of _input as independent segments, the first
+     *  set up by SETTINGS and each later one starting at a settings line.
+     *  A segment longer than PARALLEL_CHUNK characters is cut into chunks
+     *  at line boundaries; each chunk seeks to its offset in the message.
+     *  Every chunk runs on its own machine in the common fork-join pool,
+     *  and the results are written to _output in input order.  At most
+     *  about PARALLEL_WINDOW characters of input are held at once.  The
+     *  latency recorded in Metrics for a message is the total time its
+     *  chunks spent converting. */
+    private void processParallel(String settings) throws IOException {
+        ArrayDeque<Future<?>> pending = new ArrayDeque<>();
+        ArrayDeque<StringWriter> results = new ArrayDeque<>();
+        ArrayDeque<Integer> sizes = new ArrayDeque<>();
+        ArrayDeque<AtomicLong> timers = new ArrayDeque<>();
+        ArrayDeque<Boolean> lasts = new ArrayDeque<>();
+        AtomicLong busy = new AtomicLong();
+        long held = 0, offset = 0, converted = 0;
+        int settingsLine = _input.lineNumber();
+        StringBuilder text = new StringBuilder();
+        boolean more = true;
+        while (more) {
+            more = _input.nextLine();
+            char[] buf = _input.buffer();
+            int start = _input.lineStart(), end = _input.lineEnd();
+            boolean newSegment = !more || start < end && buf[start] == '*';
+            if (!newSegment) {
+                int len = removeSpaces(buf, start, end);
+                text.append(buf, start, len).append('\n');
+                converted += len;
+                if (text.length() < PARALLEL_CHUNK) {
+                    continue;
+                }
+            }
+            String chunkSettings = settings;
+            int chunkLine = settingsLine;
+            long chunkOffset = offset;
+            AtomicLong chunkBusy = busy;
+            char[] chunk = text.toString().toCharArray();
+            StringWriter out = new StringWriter();
+            pending.add(ForkJoinPool.commonPool().submit(
+                () -> runSegment(chunkSettings, chunkLine, chunkOffset, chunk,
+                                 out, chunkBusy),
+                null));
+            results.add(out);
+            sizes.add(chunk.length);
+            timers.add(busy);
+            lasts.add(newSegment);
+            held += chunk.length;
+            while (held > PARALLEL_WINDOW || !more && !pending.isEmpty()) {
+                held -= sizes.remove();
+                finishSegment(pending.remove(), results.remove());
+                AtomicLong timer = timers.remove();
+                if (lasts.remove() && Metrics.ENABLED) {
+                    Metrics.INSTANCE.message(timer.get());
+                }
+            }
+            text.setLength(0);
+            offset = converted;
+            if (more && newSegment) {
+                settings = _input.line();
+                settingsLine = _input.lineNumber();
+                offset = converted = 0;
+                busy = new AtomicLong();
             }
-            return new Machine(_alphabet, numRotors, numPawls, allRotors);
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
+    /** Set up a new machine from SETTINGS, which is line LINE of the
+     *  input, move it OFFSET characters into the message, and use it to
+     *  convert the newline-terminated message lines in TEXT, writing them
+     *  to OUT.  If Metrics are ENABLED, adds the time taken to BUSY. */
+    private void runSegment(String settings, int line, long offset,
+                            char[] text, Writer out, AtomicLong busy) {
+        long begun = Metrics.ENABLED ? System.nanoTime() : 0;
         try {
-            String rotorName = _config.next();
-            String rotorConfig = _config.next();
-            StringBuilder permCycles = new StringBuilder();
-            while (_config.hasNext("[(].*[)]")) {
-                permCycles.append(_config.next()).append(" ");
+            Machine machine = newMachine();
+            setUp(machine, settings, _inputName, line);
+            machine.seek(offset);
+            int start = 0;
+            for (int end = 0; end < text.length; end += 1) {
+                if (text[end] == '\n') {
+                    convertLine(machine, text, start, end, out);
+                    start = end + 1;
+                }
             }
-            Permutation permutation =
-                    new Permutation(permCycles.toString(), _alphabet);
-            if (rotorConfig.charAt(0) == 'M') {
-                return new
-                        MovingRotor(rotorName,
-                        permutation,
-                        rotorConfig.substring(1));
-            } else if (rotorConfig.charAt(0) == 'N') {
-                return new FixedRotor(rotorName, permutation);
-            } else {
-                return new Reflector(rotorName, permutation);
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        } finally {
+            if (Metrics.ENABLED) {
+                busy.addAndGet(System.nanoTime() - begun);
             }
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
         }
     }
 
-    /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
+    /** Wait for the segment computed by DONE, then copy what it wrote to
+     *  OUT to _output.  If the segment failed, throw its exception after
+     *  the lines it finished, as the serial loop would. */
+    private void finishSegment(Future<?> done, StringWriter out)
+        throws IOException {
         try {
-            Scanner settingsScanner = new Scanner(settings);
-            if (!settingsScanner.next().equals("*")) {
-                throw new EnigmaException(
-                        "Setting file must start with asterisk");
-            }
-            String[] rotorNames = new String[M.numRotors()];
-            for (int i = 0; i < M.numRotors(); i++) {
-                String r = settingsScanner.next();
-                if (Arrays.asList(rotorNames).contains(r)) {
-                    throw new EnigmaException("Cannot repeat rotor!");
-                }
-                rotorNames[i] = r;
+            done.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("interrupted");
+        } catch (ExecutionException excp) {
+            _output.write(out.getBuffer().toString());
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
             }
-            String rotorPresets = settingsScanner.next();
-            StringBuilder plugboardSettings = new StringBuilder();
-            while (settingsScanner.hasNext()) {
-                plugboardSettings.append(settingsScanner.next()).append(" ");
+            throw error("segment failed: %s", excp.getCause());
+        }
+        _output.write(out.getBuffer().toString());
+    }
+
+    /** Convert the message line BUF[START .. END-1] in place with M,
+     *  and write it to OUT in groups of five. */
+    private void convertLine(Machine M, char[] buf, int start, int end,
+                             Writer out) throws IOException {
+        int len = removeSpaces(buf, start, end);
+        M.convert(buf, start, len);
+        printMessageLine(out, buf, start, len);
+    }
+
+    /** Remove the blanks from BUF[START .. END-1], shifting the other
+     *  characters left, and return how many characters remain. */
+    static int removeSpaces(char[] buf, int start, int end) {
+        int k = start;
+        for (int i = start; i < end; i += 1) {
+            if (buf[i] != ' ') {
+                buf[k] = buf[i];
+                k += 1;
             }
-            M.insertRotors(rotorNames);
-            M.setRotors(rotorPresets);
-            M.setPlugboard(new Permutation(
-                    plugboardSettings.toString(), _alphabet));
-        } catch (NoSuchElementException | NullPointerException e) {
-            throw new EnigmaException("Default error");
         }
+        return k - start;
+    }
+
+    /** Read the machine description and rotor catalog from the
+     *  configuration file _config, through the cache file named by the
+     *  system property ConfigParser.CACHE_PROPERTY, if it is set. */
+    private void readConfig() {
+        String cache = System.getProperty(ConfigParser.CACHE_PROPERTY);
+        _catalog = ConfigParser.read(_config,
+                                     cache == null ? null : new File(cache));
+    }
+
+    /** Return a new Enigma machine as described by _config.  Machines
+     *  returned by different calls share no mutable state. */
+    private Machine newMachine() {
+        return _catalog.newMachine();
+    }
+
+    /** Set M according to the settings line SETTINGS, which is line
+     *  LINE of SOURCE (used in error messages), as for
+     *  ConfigParser.setUp. */
+    static void setUp(Machine M, String settings, String source, int line) {
+        new ConfigParser(settings, source, line).setUp(M);
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String res = "";
-        for (int i = 0; i < msg.length(); i += 5) {
-            if (i < msg.length() - 5) {
-                res += msg.substring(i, i + 5) + " ";
+    /** Print the LEN characters of MSG starting at OFF on OUT in groups
+     *  of five (except that the last group may have fewer letters). */
+    static void printMessageLine(Writer out, char[] msg, int off,
+                                         int len) throws IOException {
+        for (int i = 0; i < len; i += 5) {
+            if (i < len - 5) {
+                out.write(msg, off + i, 5);
+                out.write(' ');
             } else {
-                res += msg.substring(i);
+                out.write(msg, off + i, len - i);
             }
         }
-        _output.println(res);
+        out.write(LINE_SEPARATOR);
     }
 
-    /** Alphabet used in this machine. */
-    private Alphabet _alphabet;
+    /** Leading argument that selects processParallel. */
+    static final String PARALLEL_FLAG = "--parallel";
+
+    /** Input characters processParallel may hold before waiting for the
+     *  oldest segment. */
+    static final int PARALLEL_WINDOW = 1 << 24;
+
+    /** Length, in characters, beyond which processParallel splits a
+     *  segment. */
+    static final int PARALLEL_CHUNK = 1 << 18;
+
+    /** Size of the output buffer, in characters. */
+    static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /** Line terminator written after each output line, as println would
+     *  write it. */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /** Machine configuration and rotors described by _config. */
+    private RotorCatalog _catalog;
+
+
+    /** True iff segments are processed in parallel. */
+    private boolean _parallel;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private MessageInput _input;
+
+    /** Name of the source of input messages, for error messages. */
+    private String _inputName;
 
-    /** Source of machine configuration. */
-    private Scanner _config;
+    /** Configuration file. */
+    private File _config;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private Writer _output;
 }
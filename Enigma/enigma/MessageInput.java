@@ -0,0 +1,218 @@
+package enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+import static enigma.EnigmaException.*;
+
+/** A source of input lines for Main, read in bulk into one reusable
+ *  character buffer.  Files are memory-mapped a window at a time and
+ *  decoded directly into the buffer; other sources are read through a
+ *  Reader.  Lines end as they do for Scanner.nextLine, but no String is
+ *  made for a line unless line() is called, and no regular expressions
+ *  are involved.
+ *  @author Vedant Bhatter
+ */
+class MessageInput {
+
+    /** Initial size of the line buffer, in characters. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Largest part of a file mapped at once, in bytes. */
+    static final int MAP_WINDOW = 1 << 27;
+
+    /** Lines read from IN. */
+    MessageInput(Reader in) {
+        _reader = in;
+        _buf = new char[BUFFER_SIZE];
+    }
+
+    /** Lines read from the mapped contents of CHANNEL, decoded with
+     *  CHARSET. */
+    private MessageInput(FileChannel channel, Charset charset)
+        throws IOException {
+        _channel = channel;
+        _size = channel.size();
+        _decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _buf = new char[BUFFER_SIZE];
+        mapFrom(0);
+    }
+
+    /** Return lines read from FILE in the default character set, which
+     *  is what Scanner would use. */
+    static MessageInput open(File file) throws IOException {
+        FileChannel channel =
+            FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new MessageInput(channel, Charset.defaultCharset());
+        } catch (IOException excp) {
+            channel.close();
+            throw excp;
+        }
+    }
+
+    /** Advance to the next line, returning false (and leaving the current
+     *  line undefined) if there is none. */
+    boolean nextLine() {
+        int k = _pos;
+        while (true) {
+            for (; k < _lim; k += 1) {
+                if (isLineEnd(_buf[k])) {
+                    break;
+                }
+            }
+            if (k < _lim && (_buf[k] != '\r' || k + 1 < _lim || _eof)) {
+                _start = _pos;
+                _end = k;
+                _pos = k + 1;
+                if (_buf[k] == '\r' && _pos < _lim && _buf[_pos] == '\n') {
+                    _pos += 1;
+                }
+                _lineNumber += 1;
+                return true;
+            }
+            if (_eof) {
+                if (_pos == _lim) {
+                    return false;
+                }
+                _start = _pos;
+                _end = _pos = _lim;
+                _lineNumber += 1;
+                return true;
+            }
+            k -= _pos;
+            fill();
+            k += _pos;
+        }
+    }
+
+    /** Return the buffer holding the current line.  Its contents may be
+     *  modified, but only until the next call to nextLine(). */
+    char[] buffer() {
+        return _buf;
+    }
+
+    /** Return the index in buffer() of the current line's first
+     *  character. */
+    int lineStart() {
+        return _start;
+    }
+
+    /** Return the index in buffer() just past the current line's last
+     *  character, not counting its line terminator. */
+    int lineEnd() {
+        return _end;
+    }
+
+    /** Return the number of the current line, counting from 1. */
+    int lineNumber() {
+        return _lineNumber;
+    }
+
+    /** Return the current line as a String. */
+    String line() {
+        return new String(_buf, _start, _end - _start);
+    }
+
+    /** Return true iff C terminates a line for Scanner.nextLine. */
+    private static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r'
+            || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Move the unread characters to the front of _buf, growing it if it
+     *  is full, and read more after them.  Sets _eof at end of input. */
+    private void fill() {
+        if (_pos > 0) {
+            System.arraycopy(_buf, _pos, _buf, 0, _lim - _pos);
+            _lim -= _pos;
+            _pos = 0;
+        }
+        if (_lim == _buf.length) {
+            char[] bigger = new char[_buf.length * 2];
+            System.arraycopy(_buf, 0, bigger, 0, _lim);
+            _buf = bigger;
+        }
+        try {
+            if (_reader != null) {
+                int n = _reader.read(_buf, _lim, _buf.length - _lim);
+                if (n < 0) {
+                    _eof = true;
+                } else {
+                    _lim += n;
+                }
+            } else {
+                decode();
+            }
+        } catch (IOException excp) {
+            throw error("could not read input: %s", excp.getMessage());
+        }
+    }
+
+    /** Decode as much of the mapped file as fits after _lim, mapping the
+     *  next window when the current one is used up. */
+    private void decode() throws IOException {
+        CharBuffer out = CharBuffer.wrap(_buf, _lim, _buf.length - _lim);
+        boolean last = _offset + _bytes.limit() == _size;
+        _decoder.decode(_bytes, out, last);
+        if (last && !_bytes.hasRemaining()) {
+            _eof = _decoder.flush(out).isUnderflow();
+            if (_eof) {
+                _channel.close();
+            }
+        } else if (!last && out.position() == _lim) {
+            mapFrom(_offset + _bytes.position());
+            _decoder.decode(_bytes, out, false);
+        }
+        _lim = out.position();
+    }
+
+    /** Map the window of the file starting at byte OFFSET. */
+    private void mapFrom(long offset) throws IOException {
+        _offset = offset;
+        long len = Math.min(MAP_WINDOW, _size - offset);
+        _bytes = _channel.map(FileChannel.MapMode.READ_ONLY, offset, len);
+    }
+
+    /** Source of characters when not reading a mapped file. */
+    private Reader _reader;
+
+    /** Mapped file being read, or null. */
+    private FileChannel _channel;
+
+    /** Decoder from _bytes into _buf. */
+    private CharsetDecoder _decoder;
+
+    /** Currently mapped window of _channel. */
+    private ByteBuffer _bytes;
+
+    /** Offset in the file of _bytes, and the file's size. */
+    private long _offset, _size;
+
+    /** Characters read but not yet consumed are _buf[_pos .. _lim-1]. */
+    private char[] _buf;
+
+    /** Bounds of the unconsumed characters in _buf. */
+    private int _pos, _lim;
+
+    /** Number of lines read so far. */
+    private int _lineNumber;
+
+    /** Bounds of the current line in _buf. */
+    private int _start, _end;
+
+    /** True once every character of the input is in _buf. */
+    private boolean _eof;
+
+}
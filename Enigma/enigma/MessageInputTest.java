@@ -0,0 +1,76 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import java.util.ArrayList;
+
+/** The suite of all JUnit tests for the MessageInput class.
+ *  @author Vedant Bhatter
+ */
+public class MessageInputTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return the lines of TEXT as read by a MessageInput. */
+    private ArrayList<String> lines(String text) {
+        MessageInput input = new MessageInput(new StringReader(text));
+        ArrayList<String> result = new ArrayList<>();
+        while (input.nextLine()) {
+            result.add(input.line());
+        }
+        return result;
+    }
+
+    @Test
+    public void testLineEnds() {
+        ArrayList<String> got = lines("* B I\r\nAB CD\n\nEF\rGH\u2028IJ");
+        assertEquals(6, got.size());
+        assertEquals("* B I", got.get(0));
+        assertEquals("AB CD", got.get(1));
+        assertEquals("", got.get(2));
+        assertEquals("EF", got.get(3));
+        assertEquals("GH", got.get(4));
+        assertEquals("IJ", got.get(5));
+    }
+
+    @Test
+    public void testTrailingTerminator() {
+        assertEquals(1, lines("HELLO\n").size());
+        assertEquals(1, lines("HELLO\r\n").size());
+        assertEquals(0, lines("").size());
+    }
+
+    @Test
+    public void testLongLine() {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 3 * MessageInput.BUFFER_SIZE; i += 1) {
+            line.append((char) ('A' + i % 26));
+        }
+        ArrayList<String> got = lines(line + "\r\nZ");
+        assertEquals(2, got.size());
+        assertEquals(line.toString(), got.get(0));
+        assertEquals("Z", got.get(1));
+    }
+
+    @Test
+    public void testBufferInPlace() {
+        MessageInput input = new MessageInput(new StringReader("XY\nZ\n"));
+        assertTrue(input.nextLine());
+        char[] buf = input.buffer();
+        assertEquals(2, input.lineEnd() - input.lineStart());
+        assertEquals('X', buf[input.lineStart()]);
+        buf[input.lineStart()] = 'Q';
+        assertEquals("QY", input.line());
+        assertTrue(input.nextLine());
+        assertEquals("Z", input.line());
+        assertFalse(input.nextLine());
+    }
+
+}
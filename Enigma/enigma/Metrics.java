@@ -0,0 +1,231 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static enigma.EnigmaException.*;
+
+/** Opt-in counters and timings for the simulator.  They are on only if
+ *  the system property enigma.metrics is true when this class is loaded;
+ *  every recording site is guarded by the constant ENABLED, so that when
+ *  they are off the JIT removes them and they cost nothing.  When on,
+ *  the single instance, INSTANCE, counts without locks, is published
+ *  over JMX by start(), and can be dumped as text periodically (every
+ *  enigma.metrics.interval seconds, if set) and when Main finishes.
+ *  @author Vedant Bhatter
+ */
+final class Metrics implements MetricsMXBean {
+
+    /** True iff metrics are being recorded. */
+    static final boolean ENABLED = Boolean.getBoolean("enigma.metrics");
+
+    /** The metrics, or null if not ENABLED. */
+    static final Metrics INSTANCE = ENABLED ? new Metrics() : null;
+
+    /** Largest number of rotor slots whose steps are counted separately;
+     *  steps of slots beyond are counted with the last. */
+    static final int MAX_SLOTS = 16;
+
+    /** JMX name under which INSTANCE is registered. */
+    static final String OBJECT_NAME = "enigma:type=Metrics";
+
+    /** Metrics are made only as INSTANCE, or in tests. */
+    Metrics() {
+    }
+
+    /** Publish INSTANCE over JMX and start its periodic dump on
+     *  System.err, if metrics are ENABLED.  Later calls do nothing. */
+    static synchronized void start() {
+        if (!ENABLED || _started) {
+            return;
+        }
+        _started = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException excp) {
+            throw error("could not publish metrics: %s", excp.getMessage());
+        }
+        long interval = Long.getLong("enigma.metrics.interval", 0);
+        if (interval > 0) {
+            ScheduledExecutorService timer =
+                Executors.newSingleThreadScheduledExecutor(task -> {
+                    Thread thread = new Thread(task, "enigma-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            timer.scheduleAtFixedRate(() -> INSTANCE.dump(System.err),
+                                      interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Record that N characters were converted. */
+    void converted(int n) {
+        _converted.add(n);
+    }
+
+    /** Record that the rotor in SLOT advanced. */
+    void stepped(int slot) {
+        _steps.incrementAndGet(Math.min(slot, MAX_SLOTS - 1));
+    }
+
+    /** Record that the rotor in SLOT advanced N times at once. */
+    void stepped(int slot, long n) {
+        _steps.addAndGet(Math.min(slot, MAX_SLOTS - 1), n);
+    }
+
+    /** Record a double step. */
+    void doubleStepped() {
+        _doubleSteps.increment();
+    }
+
+    /** Record a KEYSTREAM lookup that HIT (or missed) its table. */
+    void keystream(boolean hit) {
+        if (hit) {
+            _keystreamHits.increment();
+        } else {
+            _keystreamMisses.increment();
+        }
+    }
+
+    /** Record a configuration parse that took NANOS nanoseconds. */
+    void parsed(long nanos) {
+        _parseNanos.add(nanos);
+    }
+
+    /** Record a message that took NANOS nanoseconds to convert. */
+    void message(long nanos) {
+        _latency.record(nanos);
+    }
+
+    @Override
+    public long getCharactersConverted() {
+        return _converted.sum();
+    }
+
+    @Override
+    public long[] getRotorSteps() {
+        long[] result = new long[MAX_SLOTS];
+        for (int i = 0; i < MAX_SLOTS; i += 1) {
+            result[i] = _steps.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public long getDoubleSteps() {
+        return _doubleSteps.sum();
+    }
+
+    @Override
+    public long getKeystreamHits() {
+        return _keystreamHits.sum();
+    }
+
+    @Override
+    public long getKeystreamMisses() {
+        return _keystreamMisses.sum();
+    }
+
+    @Override
+    public long getConfigParseNanos() {
+        return _parseNanos.sum();
+    }
+
+    @Override
+    public long getMessages() {
+        return _latency.count();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return _latency.percentile(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return _latency.percentile(0.99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return _latency.max();
+    }
+
+    @Override
+    public String getDump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("enigma metrics%n"));
+        out.append(String.format("  characters converted  %d%n",
+                                 getCharactersConverted()));
+        out.append("  rotor steps          ");
+        long[] steps = getRotorSteps();
+        for (int i = 1; i < steps.length; i += 1) {
+            if (steps[i] != 0) {
+                out.append(String.format(" %d:%d", i, steps[i]));
+            }
+        }
+        out.append(String.format("%n  double steps          %d%n",
+                                 getDoubleSteps()));
+        out.append(String.format("  keystream hits/misses %d/%d%n",
+                                 getKeystreamHits(), getKeystreamMisses()));
+        out.append(String.format("  config parse          %.3f ms%n",
+                                 getConfigParseNanos() / 1e6));
+        out.append(String.format("  message latency (ns)  count %d  p50 %d"
+                                 + "  p99 %d  max %d%n",
+                                 getMessages(), getLatencyP50Nanos(),
+                                 getLatencyP99Nanos(), getLatencyMaxNanos()));
+        return out.toString();
+    }
+
+    /** Print getDump() on OUT. */
+    void dump(PrintStream out) {
+        out.print(getDump());
+        out.flush();
+    }
+
+    @Override
+    public void reset() {
+        _converted.reset();
+        for (int i = 0; i < MAX_SLOTS; i += 1) {
+            _steps.set(i, 0);
+        }
+        _doubleSteps.reset();
+        _keystreamHits.reset();
+        _keystreamMisses.reset();
+        _parseNanos.reset();
+        _latency.reset();
+    }
+
+    /** True once start() has run. */
+    private static boolean _started;
+
+    /** Characters converted. */
+    private final LongAdder _converted = new LongAdder();
+
+    /** Rotor advances, by slot. */
+    private final AtomicLongArray _steps = new AtomicLongArray(MAX_SLOTS);
+
+    /** Double steps. */
+    private final LongAdder _doubleSteps = new LongAdder();
+
+    /** KEYSTREAM lookups. */
+    private final LongAdder _keystreamHits = new LongAdder(),
+        _keystreamMisses = new LongAdder();
+
+    /** Time spent parsing configurations. */
+    private final LongAdder _parseNanos = new LongAdder();
+
+    /** Message latencies. */
+    private final LatencyHistogram _latency = new LatencyHistogram();
+
+}
@@ -0,0 +1,48 @@
+package enigma;
+
+/** The management interface through which Metrics are published over
+ *  JMX, as enigma:type=Metrics.
+ *  @author Vedant Bhatter
+ */
+public interface MetricsMXBean {
+
+    /** Return the number of characters converted by all machines. */
+    long getCharactersConverted();
+
+    /** Return the number of times a rotor advanced, by slot (entry 0, the
+     *  reflector's, is always 0). */
+    long[] getRotorSteps();
+
+    /** Return the number of double steps: a rotor advancing because it was
+     *  itself at a notch. */
+    long getDoubleSteps();
+
+    /** Return the number of KEYSTREAM engine table hits. */
+    long getKeystreamHits();
+
+    /** Return the number of KEYSTREAM engine table misses. */
+    long getKeystreamMisses();
+
+    /** Return the total time spent parsing configurations, in
+     *  nanoseconds. */
+    long getConfigParseNanos();
+
+    /** Return the number of messages timed. */
+    long getMessages();
+
+    /** Return the median message latency, in nanoseconds. */
+    long getLatencyP50Nanos();
+
+    /** Return the 99th percentile message latency, in nanoseconds. */
+    long getLatencyP99Nanos();
+
+    /** Return the largest message latency, in nanoseconds. */
+    long getLatencyMaxNanos();
+
+    /** Return all of the above as text. */
+    String getDump();
+
+    /** Set every count back to 0. */
+    void reset();
+
+}
@@ -13,15 +13,44 @@ class MovingRotor extends Rotor {
      *  alphabet).
      */
     MovingRotor(String name, Permutation perm, String notches) {
+        this(name, perm, notchSet(perm.alphabet(), notches));
+    }
+
+    /** A rotor named NAME with permutation PERM whose notches are given by
+     *  the bit set NOTCHES (see notchSet), which it shares and must not
+     *  be modified. */
+    MovingRotor(String name, Permutation perm, long[] notches) {
         super(name, perm);
         _notches = notches;
     }
 
+    /** Return the bit set of the positions in ALPHA of the characters in
+     *  NOTCHES: bit P of word P / 64 is on iff there is a notch at P. */
+    static long[] notchSet(Alphabet alpha, String notches) {
+        long[] result = new long[(alpha.size() + 63) >>> 6];
+        for (int i = 0; i < notches.length(); i += 1) {
+            int posn = alpha.toInt(notches.charAt(i));
+            result[posn >>> 6] |= 1L << posn;
+        }
+        return result;
+    }
+
     @Override
     boolean rotates() {
         return true;
     }
 
+    @Override
+    String notches() {
+        StringBuilder result = new StringBuilder();
+        for (int posn = 0; posn < size(); posn += 1) {
+            if ((_notches[posn >>> 6] & (1L << posn)) != 0) {
+                result.append(alphabet().toChar(posn));
+            }
+        }
+        return result.toString();
+    }
+
     @Override
     public String toString() {
         return "MovingRotor" + name();
@@ -29,26 +58,29 @@ class MovingRotor extends Rotor {
 
     @Override
     boolean atNotch() {
-        int i = 0;
-        int len = _notches.length();
-        char notch = _notches.charAt(i);
-        while (i < len) {
-            if (setting() == alphabet().toInt(notch)) {
-                return true;
+        int posn = setting();
+        return (_notches[posn >>> 6] & (1L << posn)) != 0;
+    }
+
+    @Override
+    int stepsToNotch() {
+        int size = size();
+        for (int k = 0, posn = setting(); k < size; k += 1) {
+            if ((_notches[posn >>> 6] & (1L << posn)) != 0) {
+                return k;
             }
-            i += 1;
+            posn = posn + 1 == size ? 0 : posn + 1;
         }
-        return false;
+        return -1;
     }
 
-
     @Override
     void advance() {
-        int notch = 1 + setting();
-        Permutation perm = permutation();
-        set(perm.wrap(notch));
+        int next = setting() + 1;
+        set(next == size() ? 0 : next);
     }
 
-    /** Private string for the notches. */
-    private String _notches;
+    /** Bit set of my notch positions: bit P of word P / 64 is on iff
+     *  there is a notch at setting P. */
+    private final long[] _notches;
 }
@@ -0,0 +1,200 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A table of n-gram log-probabilities over an Alphabet, for scoring
+ *  trial decryptions.  Tables are read from text with one n-gram and its
+ *  count per line (e.g. "THE 1234"); every n-gram must have the same
+ *  length, and n-grams that never appear get a small floor probability.
+ *  Texts are scored as arrays of alphabet indices, without allocating.
+ *  @author Vedant Bhatter
+ */
+final class NGramModel {
+
+    /** Largest number of entries in a table. */
+    static final int TABLE_LIMIT = 1 << 24;
+
+    /** The model over ALPHA whose counts are read from IN. */
+    NGramModel(Alphabet alpha, Reader in) {
+        _alphabet = alpha;
+        int n = alpha.size();
+        long[] counts = null;
+        int order = 0;
+        long total = 0;
+        try (BufferedReader lines = new BufferedReader(in)) {
+            for (String line = lines.readLine(); line != null;
+                 line = lines.readLine()) {
+                line = line.strip();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 2) {
+                    throw error("bad n-gram line: %s", line);
+                }
+                String gram = fields[0];
+                if (counts == null) {
+                    order = gram.length();
+                    counts = new long[tableSize(n, order)];
+                } else if (gram.length() != order) {
+                    throw error("n-gram %s is not of length %d", gram, order);
+                }
+                long count = count(fields[1]);
+                int code = 0;
+                for (int i = 0; i < order; i += 1) {
+                    char c = gram.charAt(i);
+                    if (!alpha.contains(c)) {
+                        throw error("n-gram %s is not in the alphabet", gram);
+                    }
+                    code = code * n + alpha.toInt(c);
+                }
+                counts[code] += count;
+                total += count;
+            }
+        } catch (IOException excp) {
+            throw error("could not read n-grams: %s", excp.getMessage());
+        }
+        if (total == 0) {
+            throw error("no n-gram counts");
+        }
+        _order = order;
+        _high = counts.length / n;
+        _table = new float[counts.length];
+        float floor = (float) Math.log10(FLOOR / total);
+        for (int k = 0; k < counts.length; k += 1) {
+            _table[k] = counts[k] == 0 ? floor
+                : (float) Math.log10((double) counts[k] / total);
+        }
+    }
+
+    /** Return the model over ALPHA read from FILE. */
+    static NGramModel read(File file, Alphabet alpha) {
+        try {
+            return new NGramModel(alpha, new FileReader(file));
+        } catch (IOException excp) {
+            throw error("could not open %s", file);
+        }
+    }
+
+    /** Return the number of n-grams of length ORDER over N characters,
+     *  checking that it is within TABLE_LIMIT. */
+    private static int tableSize(int n, int order) {
+        if (order == 0) {
+            throw error("empty n-gram");
+        }
+        long size = 1;
+        for (int i = 0; i < order; i += 1) {
+            size *= n;
+            if (size > TABLE_LIMIT) {
+                throw error("too many %d-grams", order);
+            }
+        }
+        return (int) size;
+    }
+
+    /** Return the count in FIELD. */
+    private static long count(String field) {
+        try {
+            long count = Long.parseLong(field);
+            if (count < 0) {
+                throw error("negative n-gram count");
+            }
+            return count;
+        } catch (NumberFormatException excp) {
+            throw error("bad n-gram count: %s", field);
+        }
+    }
+
+    /** Return the length of my n-grams. */
+    int order() {
+        return _order;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the log10 probability of the n-gram whose characters have
+     *  the indices in GRAM. */
+    double logProbability(int... gram) {
+        if (gram.length != _order) {
+            throw error("expected a %d-gram", _order);
+        }
+        int code = 0;
+        for (int c : gram) {
+            code = code * _alphabet.size() + c;
+        }
+        return _table[code];
+    }
+
+    /** Return the sum of the log probabilities of the n-grams in
+     *  TEXT[0 .. LEN-1], a message as alphabet indices. */
+    double score(int[] text, int len) {
+        int n = _alphabet.size();
+        if (len < _order) {
+            return 0;
+        }
+        int code = 0;
+        for (int i = 0; i < _order - 1; i += 1) {
+            code = code * n + text[i];
+        }
+        double sum = 0;
+        for (int i = _order - 1; i < len; i += 1) {
+            code = (code % _high) * n + text[i];
+            sum += _table[code];
+        }
+        return sum;
+    }
+
+    /** Return the index of coincidence of TEXT[0 .. LEN-1], a message as
+     *  indices into an alphabet of COUNTS.length characters.  COUNTS is
+     *  scratch space and is overwritten. */
+    static double indexOfCoincidence(int[] text, int len, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < len; i += 1) {
+            counts[text[i]] += 1;
+        }
+        return indexOfCoincidence(counts, len);
+    }
+
+    /** Return the index of coincidence of a message of LEN characters
+     *  that holds COUNTS[c] copies of character c. */
+    static double indexOfCoincidence(int[] counts, int len) {
+        if (len < 2) {
+            return 0;
+        }
+        long pairs = 0;
+        for (int count : counts) {
+            pairs += (long) count * (count - 1);
+        }
+        return (double) pairs / ((long) len * (len - 1));
+    }
+
+    /** Count given to an n-gram that was never seen, relative to the
+     *  total count. */
+    private static final double FLOOR = 0.01;
+
+    /** The alphabet of my n-grams. */
+    private final Alphabet _alphabet;
+
+    /** Length of my n-grams. */
+    private final int _order;
+
+    /** Number of (n-1)-grams, used to drop the first character of a
+     *  rolling n-gram code. */
+    private final int _high;
+
+    /** Log10 probability of each n-gram, indexed by its characters as
+     *  digits base alphabet size, first character most significant. */
+    private final float[] _table;
+
+}
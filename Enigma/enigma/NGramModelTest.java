@@ -0,0 +1,66 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the NGramModel class.
+ *  @author Vedant Bhatter
+ */
+public class NGramModelTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return the alphabet indices of the characters of S. */
+    private int[] indices(String s) {
+        int[] result = new int[s.length()];
+        for (int i = 0; i < s.length(); i += 1) {
+            result[i] = UPPER.toInt(s.charAt(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void testScore() {
+        NGramModel model =
+            new NGramModel(UPPER, new StringReader("TH 3\nHE 1\n\n"));
+        assertEquals(2, model.order());
+        assertEquals(Math.log10(0.75), model.logProbability(19, 7), 1e-6);
+        double floor = Math.log10(0.01 / 4);
+        assertEquals(floor, model.logProbability(0, 0), 1e-6);
+        int[] text = indices("THEA");
+        assertEquals(Math.log10(0.75) + Math.log10(0.25) + floor,
+                     model.score(text, 4), 1e-5);
+        assertEquals(Math.log10(0.75), model.score(text, 2), 1e-6);
+        assertEquals(0, model.score(text, 1), 0);
+    }
+
+    @Test
+    public void testIndexOfCoincidence() {
+        int[] counts = new int[UPPER.size()];
+        assertEquals(1.0,
+            NGramModel.indexOfCoincidence(indices("AAAA"), 4, counts), 0);
+        assertEquals(0.0,
+            NGramModel.indexOfCoincidence(indices("ABCD"), 4, counts), 0);
+        assertEquals(4.0 / 12,
+            NGramModel.indexOfCoincidence(indices("AABB"), 4, counts), 1e-9);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testMixedOrders() {
+        new NGramModel(UPPER, new StringReader("TH 3\nTHE 1\n"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadCount() {
+        new NGramModel(UPPER, new StringReader("TH x\n"));
+    }
+
+}
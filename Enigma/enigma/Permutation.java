@@ -1,15 +1,13 @@
 package enigma;
 
+import java.util.Arrays;
 
-
-
-import java.util.HashMap;
-
-
-
+import static enigma.EnigmaException.*;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
- *  to the characters of an alphabet.
+ *  to the characters of an alphabet.  The permutation is compiled into dense
+ *  forward and inverse index tables when it is built, so that permute(int)
+ *  and invert(int) are single array loads.
  *  @author Vedant Bhatter
  */
 class Permutation {
@@ -21,40 +19,98 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        _cycles = cycles;
-        _cycles = _cycles.replace("(", "").replace(")", "");
-        resultStringList = _cycles.split(" ");
-        permute = new HashMap<>();
-        invert = new HashMap<>();
-        deranged = true;
-
-        for (String s1 : resultStringList) {
-            if (s1.length() == 1) {
-                deranged = false;
-            } else if (s1.length() == 0) {
-                break;
+        int n = alphabet.size();
+        _forward = new int[n];
+        _inverse = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            _forward[i] = i;
+            _inverse[i] = i;
+        }
+        boolean[] seen = new boolean[n];
+        int start = -1;
+        for (int k = 0; k < cycles.length(); k += 1) {
+            char c = cycles.charAt(k);
+            if (c == '(') {
+                if (start >= 0) {
+                    throw error("nested ( in cycles");
+                }
+                start = k + 1;
+            } else if (c == ')') {
+                if (start < 0) {
+                    throw error("unmatched ) in cycles");
+                }
+                addCycle(cycles.substring(start, k), seen);
+                start = -1;
+            } else if (start < 0 && !Character.isWhitespace(c)) {
+                throw error("character %c outside of a cycle", c);
             }
-            s1 += s1.charAt(0);
-            for (int c = 0; c < s1.length() - 1; c++) {
-                permute.put(s1.charAt(c), s1.charAt(c + 1));
-                invert.put(s1.charAt(s1.length() - 1 - c),
-                        s1.charAt(s1.length() - 2 - c));
+        }
+        if (start >= 0) {
+            throw error("unterminated cycle");
+        }
+        deranged = findDeranged();
+    }
+
+    /** The permutation of ALPHABET that maps index I to FORWARD[I].
+     *  FORWARD must be a permutation of 0 .. ALPHABET.size()-1; it is
+     *  copied. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        int n = alphabet.size();
+        if (forward.length != n) {
+            throw error("permutation of the wrong size");
+        }
+        _alphabet = alphabet;
+        _forward = forward.clone();
+        _inverse = new int[n];
+        Arrays.fill(_inverse, -1);
+        for (int i = 0; i < n; i += 1) {
+            int c = _forward[i];
+            if (c < 0 || c >= n || _inverse[c] >= 0) {
+                throw error("not a permutation");
             }
+            _inverse[c] = i;
         }
+        deranged = findDeranged();
+    }
 
-        String s = alphabet.getChars();
-        for (int j = 0; j < s.length(); j++) {
-            if (!permute.containsKey(s.charAt(j))) {
-                permute.put(s.charAt(j), s.charAt(j));
-                invert.put(s.charAt(j), s.charAt(j));
-                deranged = false;
+    /** Return true iff no index maps to itself under _forward. */
+    private boolean findDeranged() {
+        for (int i = 0; i < _forward.length; i += 1) {
+            if (_forward[i] == i) {
+                return false;
             }
         }
+        return true;
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
+     *  c0c1...cm.  SEEN records the indices already placed in a cycle. */
+    private void addCycle(String cycle, boolean[] seen) {
+        String chars = cycle.strip();
+        if (chars.isEmpty()) {
+            return;
+        }
+        int first = -1, prev = -1;
+        for (int k = 0; k < chars.length(); k += 1) {
+            char c = chars.charAt(k);
+            if (Character.isWhitespace(c)) {
+                throw error("white space inside cycle (%s)", cycle);
+            }
+            int cur = _alphabet.toInt(c);
+            if (seen[cur]) {
+                throw error("character %c repeated in cycles", c);
+            }
+            seen[cur] = true;
+            if (prev < 0) {
+                first = cur;
+            } else {
+                _forward[prev] = cur;
+                _inverse[cur] = prev;
+            }
+            prev = cur;
+        }
+        _forward[prev] = first;
+        _inverse[first] = prev;
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -68,42 +124,66 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _forward.length;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char c1 = alphabet().getChars().charAt(p);
-        char permuted = permute(c1);
-        return alphabet().getChars().indexOf(permuted);
+        return _forward[index(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char c1 = alphabet().getChars().charAt(c);
-        char inverted = invert(c1);
-        return alphabet().getChars().indexOf(inverted);
+        return _inverse[index(c)];
+    }
+
+    /** Return P if it is already a valid index, else P wrapped.  Keeps the
+     *  modulo off the common path. */
+    private int index(int p) {
+        return p >= 0 && p < _forward.length ? p : wrap(p);
+    }
+
+    /** Return the forward rotor table for this permutation: entry
+     *  S * size() + P is the conversion of P by a rotor at setting S, or
+     *  null if the alphabet is too large to tabulate. */
+    int[] rotorForward() {
+        if (_rotorForward == null && size() <= ROTOR_TABLE_LIMIT) {
+            _rotorForward = rotorTable(_forward);
+        }
+        return _rotorForward;
+    }
+
+    /** Return the inverse counterpart of rotorForward(), or null. */
+    int[] rotorBackward() {
+        if (_rotorBackward == null && size() <= ROTOR_TABLE_LIMIT) {
+            _rotorBackward = rotorTable(_inverse);
+        }
+        return _rotorBackward;
+    }
+
+    /** Return the table of MAP conjugated by each of the size() shifts. */
+    private int[] rotorTable(int[] map) {
+        int n = size();
+        int[] table = new int[n * n];
+        for (int s = 0; s < n; s += 1) {
+            for (int p = 0; p < n; p += 1) {
+                table[s * n + p] = wrap(map[wrap(p + s)] - s);
+            }
+        }
+        return table;
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        String alphab = alphabet().getChars();
-        if (alphab.indexOf(p) == -1) {
-            throw new EnigmaException("not in alphabet");
-        }
-        return permute.get(p);
+        return _alphabet.toChar(_forward[_alphabet.toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        String alphab = alphabet().getChars();
-        if (alphab.indexOf(c) == -1) {
-            throw new EnigmaException("Not in alphabet");
-        }
-        return invert.get(c);
+        return _alphabet.toChar(_inverse[_alphabet.toInt(c)]);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -118,19 +198,23 @@ class Permutation {
     }
 
     /** Alphabet of this permutation. */
-    private Alphabet _alphabet;
+    private final Alphabet _alphabet;
+
+    /** Forward table: index I maps to _forward[I]. */
+    private final int[] _forward;
+
+    /** Inverse table: index I maps back to _inverse[I]. */
+    private final int[] _inverse;
 
-    /** String of Cycles. */
-    private String _cycles;
+    /** Largest alphabet for which rotor tables are built. */
+    static final int ROTOR_TABLE_LIMIT = 256;
 
-    /** Hashmap of permute. */
-    private HashMap<Character, Character> permute;
+    /** Lazily built rotorForward() table. */
+    private volatile int[] _rotorForward;
 
-    /** Hashmap of invert. */
-    private HashMap<Character, Character> invert;
+    /** Lazily built rotorBackward() table. */
+    private volatile int[] _rotorBackward;
 
-    /** resulting String list. */
-    private String [] resultStringList;
     /** boolean to check for deranged. */
     private boolean deranged;
 }
@@ -119,6 +119,17 @@ public class PermutationTest {
         assertEquals(0, a.invert(0));
     }
 
+    @Test
+    public void testAdjacentCycles() {
+        perm = new Permutation(NAVALA.get("V"), UPPER);
+        checkPerm("Rotor V", UPPER_STRING, NAVALA_MAP.get("V"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadCycleChar() {
+        new Permutation("(AB) (C?)", UPPER);
+    }
+
     @Test
     public void testAlphabet() {
         Alphabet a = new Alphabet("BRUH");
@@ -25,4 +25,11 @@ class Reflector extends FixedRotor {
         }
     }
 
+    @Override
+    void setRing(int ring) {
+        if (ring != 0) {
+            throw error("reflector has no ring");
+        }
+    }
+
 }
@@ -12,6 +12,9 @@ class Rotor {
         _name = name;
         _permutation = perm;
         _setting = 0;
+        _size = perm.size();
+        _forward = perm.rotorForward();
+        _backward = perm.rotorBackward();
     }
 
     /** Return my name. */
@@ -51,29 +54,50 @@ class Rotor {
 
     /** Set setting() to POSN.  */
     void set(int posn) {
-        _setting = posn;
+        _setting = posn >= 0 && posn < _size ? posn : _permutation.wrap(posn);
+        _offset = _setting >= _ring ? _setting - _ring
+            : _setting - _ring + _size;
+        _row = _offset * _size;
     }
 
     /** Set setting() to character CPOSN. */
     void set(char cposn) {
-        _setting = alphabet().toInt(cposn);
+        set(alphabet().toInt(cposn));
+    }
+
+    /** Return my ring setting. */
+    int ring() {
+        return _ring;
+    }
+
+    /** Set my ring setting to RING: my wiring is turned back RING places
+     *  against my setting, which (with my notches) stays where it is. */
+    void setRing(int ring) {
+        _ring = _permutation.wrap(ring);
+        set(_setting);
     }
 
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        int beg = permutation().permute(permutation().wrap(_setting + p));
+        if (_forward != null) {
+            return _forward[_row + p];
+        }
+        int beg = permutation().permute(permutation().wrap(_offset + p));
         int result;
-        result = permutation().wrap(beg - _setting);
+        result = permutation().wrap(beg - _offset);
         return result;
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        int beg = permutation().invert(permutation().wrap(e + _setting));
+        if (_backward != null) {
+            return _backward[_row + e];
+        }
+        int beg = permutation().invert(permutation().wrap(e + _offset));
         int result;
-        result = permutation().wrap(beg - _setting);
+        result = permutation().wrap(beg - _offset);
         return result;
     }
 
@@ -83,6 +107,18 @@ class Rotor {
         return false;
     }
 
+    /** Return the characters at which I have notches, in alphabet
+     *  order.  By default, there are none. */
+    String notches() {
+        return "";
+    }
+
+    /** Return how many times I must advance before atNotch() is true
+     *  (0 if it is true now), or -1 if it never will be. */
+    int stepsToNotch() {
+        return -1;
+    }
+
     /** Advance me one position, if possible. By default, does nothing. */
     void advance() {
     }
@@ -98,6 +134,22 @@ class Rotor {
     /** The permutation implemented by this rotor in its 0 position. */
     private final Permutation _permutation;
 
+    /** Size of my alphabet. */
+    private final int _size;
+
+    /** My permutation's rotor tables (see Permutation.rotorForward), or
+     *  null if the alphabet is too large to tabulate. */
+    private final int[] _forward, _backward;
+
     /** Rotor Setting of current position. */
     private int _setting;
+
+    /** My ring setting. */
+    private int _ring;
+
+    /** Offset of my wiring: _setting - _ring, modulo my size. */
+    private int _offset;
+
+    /** Start of the row for _offset in _forward and _backward. */
+    private int _row;
 }
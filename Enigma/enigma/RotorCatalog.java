@@ -0,0 +1,75 @@
+package enigma;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static enigma.EnigmaException.*;
+
+/** An immutable machine configuration: an alphabet, the numbers of rotor
+ *  slots and pawls, and the available rotors as RotorSpecs.  A catalog is
+ *  read once and may then be shared between threads; newMachine() makes
+ *  cheap, independent machines from it.
+ *  @author Vedant Bhatter
+ */
+final class RotorCatalog {
+
+    /** A catalog for machines over ALPHA with NUMROTORS slots and PAWLS
+     *  pawls, holding the rotors described by SPECS, whose names must be
+     *  distinct. */
+    RotorCatalog(Alphabet alpha, int numRotors, int pawls,
+                 Collection<RotorSpec> specs) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _pawls = pawls;
+        LinkedHashMap<String, RotorSpec> byName = new LinkedHashMap<>();
+        for (RotorSpec spec : specs) {
+            if (byName.put(spec.name(), spec) != null) {
+                throw error("rotor %s described twice", spec.name());
+            }
+        }
+        _specs = Collections.unmodifiableMap(byName);
+    }
+
+    /** Return a new machine for this configuration, with no rotors
+     *  inserted yet.  It shares nothing mutable with other machines. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return the rotor named NAME, or null if there is none. */
+    RotorSpec get(String name) {
+        return _specs.get(name);
+    }
+
+    /** Return all my rotors, in the order they were given. */
+    Collection<RotorSpec> specs() {
+        return _specs.values();
+    }
+
+    /** Common alphabet of all my rotors. */
+    private final Alphabet _alphabet;
+
+    /** Number of rotor slots and pawls. */
+    private final int _numRotors, _pawls;
+
+    /** My rotors, by name. */
+    private final Map<String, RotorSpec> _specs;
+
+}
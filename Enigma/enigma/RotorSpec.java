@@ -0,0 +1,91 @@
+package enigma;
+
+/** The immutable description of a rotor: its name, its kind, its
+ *  permutation (with the rotor tables already built) and its notches.
+ *  A RotorSpec holds no position, so one may be shared by any number of
+ *  machines and threads; each machine gets its own Rotor from newRotor().
+ *  @author Vedant Bhatter
+ */
+final class RotorSpec {
+
+    /** The kinds of rotor. */
+    enum Kind {
+        /** A rotor with a pawl, which may advance (MovingRotor). */
+        MOVING,
+        /** A rotor that never moves (FixedRotor). */
+        FIXED,
+        /** A fixed rotor in the leftmost slot (Reflector). */
+        REFLECTOR
+    }
+
+    /** A rotor of kind KIND named NAME, with permutation PERM and, if it
+     *  is MOVING, notches at the characters in NOTCHES. */
+    RotorSpec(String name, Kind kind, Permutation perm, String notches) {
+        _name = name;
+        _kind = kind;
+        _permutation = perm;
+        _notches = kind == Kind.MOVING
+            ? MovingRotor.notchSet(perm.alphabet(), notches) : null;
+        perm.rotorForward();
+        perm.rotorBackward();
+    }
+
+    /** Return the description of ROTOR. */
+    static RotorSpec of(Rotor rotor) {
+        Kind kind = rotor.reflecting() ? Kind.REFLECTOR
+            : rotor.rotates() ? Kind.MOVING : Kind.FIXED;
+        return new RotorSpec(rotor.name(), kind, rotor.permutation(),
+                             rotor.notches());
+    }
+
+    /** Return a new rotor at setting 0 as described by me. */
+    Rotor newRotor() {
+        switch (_kind) {
+        case MOVING:
+            return new MovingRotor(_name, _permutation, _notches);
+        case FIXED:
+            return new FixedRotor(_name, _permutation);
+        default:
+            return new Reflector(_name, _permutation);
+        }
+    }
+
+    /** Return my name. */
+    String name() {
+        return _name;
+    }
+
+    /** Return my kind. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Return my permutation. */
+    Permutation permutation() {
+        return _permutation;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _permutation.alphabet();
+    }
+
+    @Override
+    public String toString() {
+        return "RotorSpec " + _name;
+    }
+
+    /** My name. */
+    private final String _name;
+
+    /** My kind. */
+    private final Kind _kind;
+
+    /** My permutation at setting 0. */
+    private final Permutation _permutation;
+
+    /** Notch bit set (see MovingRotor.notchSet), or null unless MOVING.
+     *  Shared with my rotors, and never modified. */
+    private final long[] _notches;
+
+}
@@ -0,0 +1,369 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static enigma.EnigmaException.*;
+
+/** A long-running Enigma service, so that clients pay for JVM start-up
+ *  and configuration parsing once rather than per message.  It listens on
+ *  a loopback TCP port or a Unix-domain socket and serves each connection
+ *  on its own thread.  Requests are lines of UTF-8 text:
+ *
+ *    CONFIG N      followed by N characters of configuration (as in a
+ *                  configuration file).  The reply is "OK H", where H
+ *                  identifies the configuration, which becomes the
+ *                  connection's current one.
+ *    USE H         make the configuration identified by H current, if it
+ *                  is still cached; the reply is "OK".
+ *    MSG K         followed by a settings line and K message lines, K
+ *                  at most MAX_LINES.  The reply is "OK K" followed by
+ *                  the K lines converted from the settings, in groups of
+ *                  five as Main prints them.  All K lines are converted
+ *                  before the reply is written, so a message that fails
+ *                  part way gets only an "ERR" reply, and the rest of its
+ *                  lines are read and discarded.
+ *    QUIT          close the connection.
+ *
+ *  A request that fails gets the reply "ERR " followed by the message.
+ *  Requests may be pipelined: replies come back in order, and are
+ *  flushed only once no more requests are waiting.  Parsed configurations
+ *  are cached, keyed by a hash of their text, and shared by all
+ *  connections.
+ *  @author Vedant Bhatter
+ */
+final class Server implements AutoCloseable {
+
+    /** Leading argument to Main that starts a server. */
+    static final String SERVE_FLAG = "--serve";
+
+    /** Largest number of configurations cached. */
+    static final int CACHE_SIZE = 64;
+
+    /** Largest configuration accepted, in characters. */
+    static final int MAX_CONFIG = 1 << 20;
+
+    /** Largest number of lines accepted in one message. */
+    static final int MAX_LINES = 1 << 20;
+
+    /** A server listening on ADDRESS, a port number on the loopback
+     *  interface (0 for any free port) or else the path of a Unix-domain
+     *  socket, which must not already exist. */
+    Server(String address) {
+        try {
+            if (address.matches("\\d+")) {
+                _channel = ServerSocketChannel.open();
+                _channel.bind(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+            } else {
+                _path = Path.of(address);
+                _channel =
+                    ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                _channel.bind(UnixDomainSocketAddress.of(_path));
+            }
+        } catch (IOException | NumberFormatException excp) {
+            throw error("could not listen on %s: %s", address,
+                        excp.getMessage());
+        }
+        _workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "enigma-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Return the address I am listening on. */
+    SocketAddress address() {
+        try {
+            return _channel.getLocalAddress();
+        } catch (IOException excp) {
+            throw error("server closed");
+        }
+    }
+
+    /** Accept and serve connections until close() is called. */
+    void serve() {
+        while (_channel.isOpen()) {
+            SocketChannel client;
+            try {
+                client = _channel.accept();
+            } catch (IOException excp) {
+                if (_channel.isOpen()) {
+                    throw error("could not accept: %s", excp.getMessage());
+                }
+                return;
+            }
+            _workers.execute(() -> serve(client));
+        }
+    }
+
+    /** Serve the requests arriving on CLIENT until it closes or quits. */
+    private void serve(SocketChannel client) {
+        try (client) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(client), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                Channels.newOutputStream(client), StandardCharsets.UTF_8),
+                Main.OUTPUT_BUFFER_SIZE);
+            handle(in, out);
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Stop accepting connections. */
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+            if (_path != null) {
+                Files.deleteIfExists(_path);
+            }
+        } catch (IOException excp) {
+            throw error("could not close server: %s", excp.getMessage());
+        }
+        _workers.shutdown();
+    }
+
+    /** Answer the requests read from IN on OUT until IN ends or a QUIT
+     *  request. */
+    void handle(BufferedReader in, Writer out) throws IOException {
+        Session session = new Session();
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            if (line.equals("QUIT")) {
+                break;
+            }
+            try {
+                session.request(line, in, out);
+            } catch (EnigmaException excp) {
+                out.write("ERR " + excp.getMessage() + "\n");
+            } catch (RuntimeException excp) {
+                out.write("ERR " + excp + "\n");
+            }
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    /** Return the identifier of configuration text CONFIG, parsing and
+     *  caching it if it is new. */
+    String register(String config) {
+        String id = hash(config);
+        synchronized (_cache) {
+            if (_cache.get(id) != null) {
+                return id;
+            }
+        }
+        RotorCatalog catalog = new ConfigParser(config, "config").parse();
+        synchronized (_cache) {
+            _cache.putIfAbsent(id, catalog);
+        }
+        return id;
+    }
+
+    /** Return the cached configuration identified by ID, or null. */
+    RotorCatalog catalog(String id) {
+        synchronized (_cache) {
+            return _cache.get(id);
+        }
+    }
+
+    /** Return the hexadecimal SHA-256 hash of TEXT. */
+    private static String hash(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support"
+                                               + " SHA-256");
+        }
+    }
+
+    /** The state of one connection. */
+    private class Session {
+
+        /** Carry out the request whose first line is LINE, reading the rest
+         *  of it from IN and replying on OUT. */
+        void request(String line, BufferedReader in, Writer out)
+            throws IOException {
+            String[] words = line.strip().split("\\s+");
+            switch (words[0]) {
+            case "CONFIG":
+                String config = readChars(in, count(words));
+                String id = register(config);
+                use(id);
+                out.write("OK " + id + "\n");
+                break;
+            case "USE":
+                if (words.length != 2) {
+                    throw error("USE takes one argument");
+                }
+                use(words[1]);
+                out.write("OK\n");
+                break;
+            case "MSG":
+                message(count(words), in, out);
+                break;
+            default:
+                throw error("unknown request: %s", words[0]);
+            }
+        }
+
+        /** Make the configuration identified by ID current. */
+        private void use(String id) {
+            RotorCatalog catalog = catalog(id);
+            if (catalog == null) {
+                throw error("unknown configuration %s", id);
+            }
+            if (catalog != _catalog) {
+                _catalog = catalog;
+                _machine = catalog.newMachine();
+            }
+        }
+
+        /** Read a settings line and K message lines from IN, and reply on
+         *  OUT with the lines converted.  If the request is refused, or
+         *  one of its lines cannot be converted, nothing is written and
+         *  the rest of its lines are read and discarded, so that the next
+         *  request is read correctly. */
+        private void message(int k, BufferedReader in, Writer out)
+            throws IOException {
+            String settings = in.readLine();
+            if (settings == null) {
+                throw error("message truncated");
+            }
+            try {
+                if (k > MAX_LINES) {
+                    throw error("message too long");
+                }
+                if (_machine == null) {
+                    throw error("no configuration");
+                }
+                Main.setUp(_machine, settings, "settings", 1);
+            } catch (RuntimeException excp) {
+                skipLines(in, k);
+                throw excp;
+            }
+            StringWriter reply = new StringWriter();
+            long busy = 0;
+            for (int i = 0; i < k; i += 1) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw error("message truncated");
+                }
+                long begun = Metrics.ENABLED ? System.nanoTime() : 0;
+                char[] chars = line.toCharArray();
+                int len = Main.removeSpaces(chars, 0, chars.length);
+                try {
+                    _machine.convert(chars, 0, len);
+                } catch (RuntimeException excp) {
+                    skipLines(in, k - i - 1);
+                    throw error("line %d: %s", i + 1, excp.getMessage());
+                }
+                Main.printMessageLine(reply, chars, 0, len);
+                if (Metrics.ENABLED) {
+                    busy += System.nanoTime() - begun;
+                }
+            }
+            if (Metrics.ENABLED) {
+                Metrics.INSTANCE.message(busy);
+            }
+            out.write("OK " + k + "\n");
+            out.write(reply.getBuffer().toString());
+        }
+
+        /** Read and discard up to K lines of IN. */
+        private void skipLines(BufferedReader in, int k) throws IOException {
+            for (int i = 0; i < k && in.readLine() != null; i += 1) {
+                continue;
+            }
+        }
+
+        /** Return the count that is the only argument in WORDS. */
+        private int count(String[] words) {
+            if (words.length != 2 || !words[1].matches("\\d{1,9}")) {
+                throw error("%s takes one count", words[0]);
+            }
+            return Integer.parseInt(words[1]);
+        }
+
+        /** Return the next N characters of IN. */
+        private String readChars(BufferedReader in, int n)
+            throws IOException {
+            if (n > MAX_CONFIG) {
+                in.skip(n);
+                throw error("configuration too large");
+            }
+            char[] text = new char[n];
+            for (int k = 0; k < n;) {
+                int got = in.read(text, k, n - k);
+                if (got < 0) {
+                    throw error("configuration truncated");
+                }
+                k += got;
+            }
+            return new String(text);
+        }
+
+        /** Current configuration. */
+        private RotorCatalog _catalog;
+
+        /** Machine for the current configuration. */
+        private Machine _machine;
+    }
+
+    /** Socket accepting connections. */
+    private final ServerSocketChannel _channel;
+
+    /** Path of the Unix-domain socket, or null. */
+    private Path _path;
+
+    /** Threads serving connections. */
+    private final ExecutorService _workers;
+
+    /** Parsed configurations by hash, least recently used first. */
+    private final Map<String, RotorCatalog> _cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, RotorCatalog> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+}
@@ -0,0 +1,124 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/** The suite of all JUnit tests for the Server class.
+ *  @author Vedant Bhatter
+ */
+public class ServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** A configuration with the naval rotors used below. */
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n5 3\n"
+        + " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " II ME     (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n";
+
+    /** A settings line for CONFIG. */
+    private static final String SETTINGS =
+        "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)";
+
+    /** Return the replies of SERVER to REQUESTS. */
+    private String replies(Server server, String requests) throws Exception {
+        StringWriter out = new StringWriter();
+        server.handle(new BufferedReader(new StringReader(requests)), out);
+        return out.toString();
+    }
+
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        try (Server server = new Server("0")) {
+            String id = server.register(CONFIG);
+            assertEquals(id, server.register(CONFIG));
+            assertNotNull(server.catalog(id));
+            String requests = "CONFIG " + CONFIG.length() + "\n" + CONFIG
+                + "MSG 2\n" + SETTINGS + "\nFROM HIS SHOULDER\nHIAWATHA\n"
+                + "MSG 1\n" + SETTINGS + "\nQVPQS OKOIL PUBKJ\n"
+                + "USE nosuch\n"
+                + "MSG 1\n* B Beta III IV I AXL\nAB\n"
+                + "USE " + id + "\nQUIT\nMSG 0\n";
+            assertEquals("OK " + id + "\n"
+                         + "OK 2\nQVPQS OKOIL PUBKJ\nZPISF XDW\n"
+                         + "OK 1\nFROMH ISSHO ULDER\n"
+                         + "ERR unknown configuration nosuch\n"
+                         + "ERR settings:1:19: rotor settings must have"
+                         + " 4 letters\n"
+                         + "OK\n",
+                         replies(server, requests));
+        }
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        try (Server server = new Server("0")) {
+            String id = server.register(CONFIG);
+            assertEquals("ERR message too long\n",
+                         replies(server, "USE " + id + "\nMSG "
+                                 + (Server.MAX_LINES + 1) + "\n" + SETTINGS
+                                 + "\nAB\nQUIT\n").substring(3));
+            assertEquals("OK\nERR message truncated\n",
+                         replies(server, "USE " + id + "\nMSG 2\n" + SETTINGS
+                                 + "\nFROM HIS SHOULDER\n"));
+        }
+    }
+
+    @Test
+    public void testBadLine() throws Exception {
+        try (Server server = new Server("0")) {
+            String id = server.register(CONFIG);
+            assertEquals("OK\nERR line 2: Ch not in alphabet / out of range\n"
+                         + "OK 1\nFROMH ISSHO ULDER\n",
+                         replies(server, "USE " + id + "\nMSG 3\n" + SETTINGS
+                                 + "\nQVPQS OKOIL PUBKJ\nqvpqs\nHIAWATHA\n"
+                                 + "MSG 1\n" + SETTINGS
+                                 + "\nQVPQS OKOIL PUBKJ\n"));
+        }
+    }
+
+    @Test
+    public void testSocket() throws Exception {
+        try (Server server = new Server("0")) {
+            Thread acceptor = new Thread(server::serve);
+            acceptor.setDaemon(true);
+            acceptor.start();
+            InetSocketAddress address = (InetSocketAddress) server.address();
+            try (Socket socket = new Socket(address.getAddress(),
+                                            address.getPort())) {
+                Writer out = new OutputStreamWriter(socket.getOutputStream(),
+                                                    StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+                out.write("CONFIG " + CONFIG.length() + "\n" + CONFIG
+                          + "MSG 1\n" + SETTINGS
+                          + "\nQVPQS OKOIL PUBKJ\nQUIT\n");
+                out.flush();
+                assertTrue(in.readLine().startsWith("OK "));
+                assertEquals("OK 1", in.readLine());
+                assertEquals("FROMH ISSHO ULDER", in.readLine());
+                assertNull(in.readLine());
+            }
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package enigma;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 /** Utility definitions for use in unit tests.
@@ -39,6 +40,40 @@ class TestUtils {
                   + "(PW) (QZ) (SX) (UY)");
     }
 
+    /** The notches of the naval moving rotors. */
+    static final HashMap<String, String> NAVAL_NOTCHES = new HashMap<>();
+    static {
+        NAVAL_NOTCHES.put("I", "Q");
+        NAVAL_NOTCHES.put("II", "E");
+        NAVAL_NOTCHES.put("III", "V");
+        NAVAL_NOTCHES.put("IV", "J");
+        NAVAL_NOTCHES.put("V", "Z");
+        NAVAL_NOTCHES.put("VI", "ZM");
+        NAVAL_NOTCHES.put("VII", "ZM");
+        NAVAL_NOTCHES.put("VIII", "ZM");
+    }
+
+    /** Return a catalog over UPPER with NUMROTORS slots and PAWLS pawls
+     *  holding the naval rotors named ROTORS, in the A setting: B and C
+     *  as reflectors, Beta and Gamma as fixed rotors, and the rest as
+     *  moving rotors with their NAVAL_NOTCHES. */
+    static RotorCatalog catalog(int numRotors, int pawls, String... rotors) {
+        ArrayList<RotorSpec> specs = new ArrayList<>();
+        for (String name : rotors) {
+            Permutation perm = new Permutation(NAVALA.get(name), UPPER);
+            if (name.equals("B") || name.equals("C")) {
+                specs.add(new RotorSpec(name, RotorSpec.Kind.REFLECTOR,
+                                        perm, ""));
+            } else if (name.equals("Beta") || name.equals("Gamma")) {
+                specs.add(new RotorSpec(name, RotorSpec.Kind.FIXED, perm, ""));
+            } else {
+                specs.add(new RotorSpec(name, RotorSpec.Kind.MOVING, perm,
+                                        NAVAL_NOTCHES.get(name)));
+            }
+        }
+        return new RotorCatalog(UPPER, numRotors, pawls, specs);
+    }
+
     /** The mapping of the upper-case alphabet by NAVALA. */
     static final HashMap<String, String> NAVALA_MAP = new HashMap<>();
     static {
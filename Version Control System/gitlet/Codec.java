@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** A way of compressing stored blobs.  Each codec has a one-byte id,
+ *  recorded in the header of every blob it compresses (see
+ *  ObjectStore), so that blobs written with different codecs can be read
+ *  side by side.  The codec used for new blobs is the one named by the
+ *  system property gitlet.codec, DEFLATE if it is not set.
+ *  @author Vedant Bhatter
+ */
+interface Codec {
+
+    /** Blobs stored as they are. */
+    Codec NONE = new Codec() {
+        @Override
+        public byte id() {
+            return 0;
+        }
+
+        @Override
+        public String name() {
+            return "none";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+    };
+
+    /** Blobs compressed by java.util.zip. */
+    Codec DEFLATE = new DeflateCodec();
+
+    /** Blobs compressed by the faster, lighter LzCodec. */
+    Codec LZ = new LzCodec();
+
+    /** Return my id, as recorded in headers.
+     *  @return the id. */
+    byte id();
+
+    /** Return my name, as given in gitlet.codec.
+     *  @return the name. */
+    String name();
+
+    /** Return a stream that compresses what is written to it onto OUT,
+     *  and closes OUT when closed.
+     *  @param out the stream to compress onto.
+     *  @return the compressing stream. */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /** Return a stream of the decompressed contents of IN, which it
+     *  closes when closed.
+     *  @param in the compressed stream.
+     *  @return the decompressing stream. */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /** Return the codec whose id is ID.
+     *  @param id a codec id.
+     *  @return the codec. */
+    static Codec forId(byte id) {
+        for (Codec codec : new Codec[] { NONE, DEFLATE, LZ }) {
+            if (codec.id() == id) {
+                return codec;
+            }
+        }
+        throw Utils.error("unknown blob codec %d", id);
+    }
+
+    /** Return the codec to use for new blobs.
+     *  @return the codec. */
+    static Codec current() {
+        String name = System.getProperty("gitlet.codec", DEFLATE.name());
+        for (Codec codec : new Codec[] { NONE, DEFLATE, LZ }) {
+            if (codec.name().equals(name)) {
+                return codec;
+            }
+        }
+        throw Utils.error("unknown blob codec %s", name);
+    }
+}
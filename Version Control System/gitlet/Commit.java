@@ -71,7 +71,7 @@ public class Commit implements Serializable {
         _parent = parent;
         _id = Utils.sha1(time.toString() + message + parent + file);
         _time = time;
-        _files = file;
+        _files = new HashMap<>(file);
         _files.putAll(stagingArea);
         _files.keySet().removeAll(stagingAreaRemoved.keySet());
     }
@@ -96,7 +96,7 @@ public class Commit implements Serializable {
         _parent2 = parent2;
         _id = Utils.sha1(time.toString() + message + parent + parent2 + file);
         _time = time;
-        _files = file;
+        _files = new HashMap<>(file);
         _files.putAll(stagingArea);
         _files.keySet().removeAll(stagingAreaRemoved.keySet());
     }
@@ -0,0 +1,376 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** The shape of the commit history, kept in .gitlet/commit-graph so that
+ *  history walks need not read any commits.  Each commit has a number,
+ *  its position in the file; the file holds, for each in turn, its id,
+ *  the numbers of its parents, and its generation (1 for a commit with no
+ *  parents, else one more than its parents' largest).  A commit always
+ *  comes after its parents, and records are only ever appended: by
+ *  ObjectStore.writeCommit as commits are made, and, for a repository made
+ *  before the file existed, as old commits are first asked about.
+ *  A commit's ancestors all have smaller generations than it, so walks
+ *  can stop as soon as they are below the generation they are looking
+ *  for.
+ *  @author Vedant Bhatter
+ */
+class CommitGraph {
+
+    /** The commit-graph file. */
+    static final File GRAPH = Utils.join(Repo.GITLET, "commit-graph");
+
+    /** Magic number starting the file. */
+    private static final int MAGIC = 0x47475048;
+
+    /** Format version. */
+    private static final int VERSION = 1;
+
+    /** Bytes before the first record. */
+    private static final int HEADER = 8;
+
+    /** Bytes in a record: the id in hex, two parents and a generation. */
+    private static final int RECORD = Utils.UID_LENGTH + 12;
+
+    /** Record COMMIT, which has just been stored, unless it is already
+     *  recorded.
+     *  @param commit the commit. */
+    static void add(Commit commit) {
+        load();
+        if (!_index.containsKey(commit.getId())) {
+            int p1 = commit.getParent() == null ? -1
+                : index(commit.getParent());
+            int p2 = commit.getParent2() == null ? -1
+                : index(commit.getParent2());
+            append(commit.getId(), p1, p2);
+        }
+    }
+
+    /** Return the generation of the commit whose id is ID.
+     *  @param id the commit id.
+     *  @return its generation. */
+    static int generation(String id) {
+        return _gen[index(id)];
+    }
+
+    /** Return the split point of the commits FIRST and SECOND: of their
+     *  common ancestors, the first met in a breadth-first walk back from
+     *  SECOND (first parents before second parents).  The ancestors of
+     *  FIRST are found by walking back from it in order of decreasing
+     *  generation, only as far as the generation of the commit the other
+     *  walk is looking at.
+     *  @param first a commit id.
+     *  @param second a commit id.
+     *  @return the split point's id, or null if there is none. */
+    static String splitPoint(String first, String second) {
+        int a = index(first), b = index(second);
+        boolean[] reached = new boolean[_count];
+        Heap frontier = new Heap(_count);
+        reached[a] = true;
+        frontier.push(a);
+        boolean[] seen = new boolean[_count];
+        int[] queue = new int[_count];
+        int head = 0, tail = 0;
+        seen[b] = true;
+        queue[tail++] = b;
+        while (head < tail) {
+            int c = queue[head++];
+            while (!frontier.isEmpty() && _gen[frontier.peek()] > _gen[c]) {
+                int v = frontier.pop();
+                reach(_parent1[v], reached, frontier);
+                reach(_parent2[v], reached, frontier);
+            }
+            if (reached[c]) {
+                return _ids[c];
+            }
+            int p1 = _parent1[c], p2 = _parent2[c];
+            if (p1 >= 0 && !seen[p1]) {
+                seen[p1] = true;
+                queue[tail++] = p1;
+            }
+            if (p2 >= 0 && !seen[p2]) {
+                seen[p2] = true;
+                queue[tail++] = p2;
+            }
+        }
+        return null;
+    }
+
+    /** Mark commit P, if there is one, as REACHED and add it to FRONTIER,
+     *  unless it already is.
+     *  @param p a commit number, or -1.
+     *  @param reached the commits reached.
+     *  @param frontier the commits whose parents are yet to be reached. */
+    private static void reach(int p, boolean[] reached, Heap frontier) {
+        if (p >= 0 && !reached[p]) {
+            reached[p] = true;
+            frontier.push(p);
+        }
+    }
+
+    /** Return true iff the commit ANCESTOR is DESCENDANT or one of its
+     *  ancestors.  The walk back from DESCENDANT goes no further back than
+     *  the generation of ANCESTOR.
+     *  @param ancestor a commit id.
+     *  @param descendant a commit id.
+     *  @return whether ANCESTOR is reachable from DESCENDANT. */
+    static boolean isAncestor(String ancestor, String descendant) {
+        int a = index(ancestor), d = index(descendant);
+        int floor = _gen[a];
+        boolean[] seen = new boolean[_count];
+        int[] stack = new int[_count];
+        int size = 0;
+        seen[d] = true;
+        stack[size++] = d;
+        while (size > 0) {
+            int v = stack[--size];
+            if (v == a) {
+                return true;
+            }
+            int p1 = _parent1[v], p2 = _parent2[v];
+            if (p1 >= 0 && !seen[p1] && _gen[p1] >= floor) {
+                seen[p1] = true;
+                stack[size++] = p1;
+            }
+            if (p2 >= 0 && !seen[p2] && _gen[p2] >= floor) {
+                seen[p2] = true;
+                stack[size++] = p2;
+            }
+        }
+        return false;
+    }
+
+    /** Forget the graph read from the file, so that it is read again when
+     *  next needed. */
+    static void reset() {
+        _index = null;
+    }
+
+    /** Return the number of the commit whose id is ID, recording it, and
+     *  any of its ancestors not yet recorded, if necessary.
+     *  @param id the commit id.
+     *  @return its number. */
+    private static int index(String id) {
+        load();
+        Integer known = _index.get(id);
+        if (known != null) {
+            return known;
+        }
+        ArrayDeque<Commit> pending = new ArrayDeque<>();
+        pending.push(read(id));
+        while (!pending.isEmpty()) {
+            Commit c = pending.peek();
+            String missing = null;
+            if (c.getParent() != null && !_index.containsKey(c.getParent())) {
+                missing = c.getParent();
+            } else if (c.getParent2() != null
+                       && !_index.containsKey(c.getParent2())) {
+                missing = c.getParent2();
+            }
+            if (missing != null) {
+                pending.push(read(missing));
+                continue;
+            }
+            pending.pop();
+            if (!_index.containsKey(c.getId())) {
+                append(c.getId(),
+                       c.getParent() == null ? -1 : _index.get(c.getParent()),
+                       c.getParent2() == null ? -1
+                       : _index.get(c.getParent2()));
+            }
+        }
+        return _index.get(id);
+    }
+
+    /** Return the stored commit whose id is ID.
+     *  @param id the commit id.
+     *  @return the commit. */
+    private static Commit read(String id) {
+        Commit c = ObjectStore.readCommit(id);
+        if (c == null) {
+            throw Utils.error("missing commit %s", id);
+        }
+        return c;
+    }
+
+    /** Read the file, if it has not been read.  A file that is not a
+     *  commit graph is ignored (and replaced when next appended to), and
+     *  a partial record at the end, left by an interrupted append, is cut
+     *  off. */
+    private static void load() {
+        if (_index != null) {
+            return;
+        }
+        _index = new HashMap<>();
+        _ids = new String[16];
+        _parent1 = new int[16];
+        _parent2 = new int[16];
+        _gen = new int[16];
+        _count = 0;
+        if (!GRAPH.isFile()) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Utils.readContents(GRAPH));
+        if (data.remaining() < HEADER || data.getInt() != MAGIC
+            || data.getInt() != VERSION) {
+            GRAPH.delete();
+            return;
+        }
+        byte[] id = new byte[Utils.UID_LENGTH];
+        while (data.remaining() >= RECORD) {
+            data.get(id);
+            int p1 = data.getInt(), p2 = data.getInt();
+            data.getInt();
+            if (p1 >= _count || p2 >= _count) {
+                GRAPH.delete();
+                _index.clear();
+                _count = 0;
+                return;
+            }
+            remember(new String(id, StandardCharsets.US_ASCII), p1, p2);
+        }
+        if (data.hasRemaining()) {
+            try (FileChannel out = FileChannel.open(GRAPH.toPath(),
+                     StandardOpenOption.WRITE)) {
+                out.truncate(HEADER + (long) _count * RECORD);
+            } catch (IOException excp) {
+                throw Utils.error("cannot repair %s", GRAPH);
+            }
+        }
+    }
+
+    /** Add the commit ID, whose parents are numbered P1 and P2 (or -1), to
+     *  the graph in memory and return its number.
+     *  @param id the commit id.
+     *  @param p1 its first parent.
+     *  @param p2 its second parent.
+     *  @return its number. */
+    private static int remember(String id, int p1, int p2) {
+        if (_count == _ids.length) {
+            int size = 2 * _count;
+            _ids = Arrays.copyOf(_ids, size);
+            _parent1 = Arrays.copyOf(_parent1, size);
+            _parent2 = Arrays.copyOf(_parent2, size);
+            _gen = Arrays.copyOf(_gen, size);
+        }
+        int v = _count;
+        _ids[v] = id;
+        _parent1[v] = p1;
+        _parent2[v] = p2;
+        _gen[v] = 1 + Math.max(p1 < 0 ? 0 : _gen[p1], p2 < 0 ? 0 : _gen[p2]);
+        _index.put(id, v);
+        _count += 1;
+        return v;
+    }
+
+    /** Add the commit ID, whose parents are numbered P1 and P2 (or -1), to
+     *  the graph and to the end of the file.
+     *  @param id the commit id.
+     *  @param p1 its first parent.
+     *  @param p2 its second parent. */
+    private static void append(String id, int p1, int p2) {
+        int v = remember(id, p1, p2);
+        boolean fresh = !GRAPH.isFile();
+        ByteBuffer record = ByteBuffer.allocate(HEADER + RECORD);
+        if (fresh) {
+            record.putInt(MAGIC).putInt(VERSION);
+        }
+        record.put(id.getBytes(StandardCharsets.US_ASCII));
+        record.putInt(p1).putInt(p2).putInt(_gen[v]);
+        record.flip();
+        try (FileChannel out = FileChannel.open(GRAPH.toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+        } catch (IOException excp) {
+            throw Utils.error("cannot write %s", GRAPH);
+        }
+    }
+
+    /** Commit numbers by id, once the file has been read. */
+    private static HashMap<String, Integer> _index;
+
+    /** Id, parents and generation of each commit, by number. */
+    private static String[] _ids;
+
+    /** Parents of each commit, -1 if absent. */
+    private static int[] _parent1, _parent2;
+
+    /** Generation of each commit. */
+    private static int[] _gen;
+
+    /** Number of commits recorded. */
+    private static int _count;
+
+    /** A heap of commit numbers, highest generation first, with room for
+     *  each commit at most once. */
+    private static class Heap {
+
+        /** An empty heap with room for CAPACITY commits.
+         *  @param capacity its largest size. */
+        Heap(int capacity) {
+            _heap = new int[capacity];
+        }
+
+        /** Return true iff I am empty.
+         *  @return whether I am empty. */
+        boolean isEmpty() {
+            return _size == 0;
+        }
+
+        /** Return my commit of highest generation.
+         *  @return its number. */
+        int peek() {
+            return _heap[0];
+        }
+
+        /** Add the commit V.
+         *  @param v a commit number. */
+        void push(int v) {
+            int i = _size++;
+            while (i > 0 && _gen[_heap[(i - 1) / 2]] < _gen[v]) {
+                _heap[i] = _heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            _heap[i] = v;
+        }
+
+        /** Remove and return my commit of highest generation.
+         *  @return its number. */
+        int pop() {
+            int result = _heap[0];
+            int v = _heap[--_size];
+            int i = 0;
+            while (2 * i + 1 < _size) {
+                int child = 2 * i + 1;
+                if (child + 1 < _size
+                    && _gen[_heap[child + 1]] > _gen[_heap[child]]) {
+                    child += 1;
+                }
+                if (_gen[_heap[child]] <= _gen[v]) {
+                    break;
+                }
+                _heap[i] = _heap[child];
+                i = child;
+            }
+            _heap[i] = v;
+            return result;
+        }
+
+        /** The commits, as a binary heap. */
+        private final int[] _heap;
+
+        /** Number of commits held. */
+        private int _size;
+    }
+}
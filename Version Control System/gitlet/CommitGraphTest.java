@@ -0,0 +1,172 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+
+/** The suite of all JUnit tests for the commit graph.
+ *  @author Vedant Bhatter
+ */
+public class CommitGraphTest {
+
+    /** Bytes in the graph file's header and in each of its records. */
+    private static final int HEADER = 8, RECORD = Utils.UID_LENGTH + 12;
+
+    /** Ids of the commits of a random history, oldest first. */
+    private String[] _ids;
+
+    /** The numbers of each commit's parents in _ids, -1 if absent. */
+    private int[] _p1, _p2;
+
+    /** Store a random history of N commits, with merges and the
+     *  occasional extra root, using RANDOM. */
+    private void randomHistory(int n, Random random) {
+        _ids = new String[n];
+        _p1 = new int[n];
+        _p2 = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            _p1[i] = _p2[i] = -1;
+            if (i > 0 && random.nextInt(50) != 0) {
+                _p1[i] = i - 1 - random.nextInt(Math.min(i, 10));
+                if (random.nextInt(3) == 0) {
+                    _p2[i] = random.nextInt(i);
+                    if (_p2[i] == _p1[i]) {
+                        _p2[i] = -1;
+                    }
+                }
+            }
+            _ids[i] = TestUtils.commit("c" + i, id(_p1[i]), id(_p2[i]), i)
+                .getId();
+        }
+    }
+
+    /** Return the id of commit number V, or null if V is -1. */
+    private String id(int v) {
+        return v < 0 ? null : _ids[v];
+    }
+
+    /** Return the set of commits that are V or its ancestors. */
+    private HashSet<Integer> ancestors(int v) {
+        HashSet<Integer> result = new HashSet<>();
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        work.push(v);
+        while (!work.isEmpty()) {
+            int c = work.pop();
+            if (c >= 0 && result.add(c)) {
+                work.push(_p1[c]);
+                work.push(_p2[c]);
+            }
+        }
+        return result;
+    }
+
+    /** Return the split point of A and B as first defined: the first
+     *  ancestor of A met in a breadth-first walk back from B, first
+     *  parents first, or null. */
+    private String bruteSplitPoint(int a, int b) {
+        HashSet<Integer> reached = ancestors(a);
+        HashSet<Integer> seen = new HashSet<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(b);
+        seen.add(b);
+        while (!queue.isEmpty()) {
+            int c = queue.poll();
+            if (reached.contains(c)) {
+                return _ids[c];
+            }
+            for (int p : new int[] { _p1[c], _p2[c] }) {
+                if (p >= 0 && seen.add(p)) {
+                    queue.add(p);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Check splitPoint and isAncestor against brute force on COUNT random
+     *  pairs of commits chosen with RANDOM. */
+    private void checkQueries(int count, Random random) {
+        for (int k = 0; k < count; k += 1) {
+            int a = random.nextInt(_ids.length);
+            int b = random.nextInt(_ids.length);
+            assertEquals(bruteSplitPoint(a, b),
+                         CommitGraph.splitPoint(_ids[a], _ids[b]));
+            assertEquals(ancestors(b).contains(a),
+                         CommitGraph.isAncestor(_ids[a], _ids[b]));
+        }
+    }
+
+    /** Reset the commit graph and commit caches, so that the graph file is
+     *  read afresh. */
+    private static void reload() {
+        ObjectStore.reset();
+        CommitGraph.reset();
+    }
+
+    @Test
+    public void testAppend() {
+        TestUtils.freshRepo();
+        Random random = new Random(61);
+        randomHistory(40, random);
+        assertEquals(HEADER + 40L * RECORD, CommitGraph.GRAPH.length());
+        reload();
+        TestUtils.commit("again", _ids[39], null, 1000);
+        assertEquals(HEADER + 41L * RECORD, CommitGraph.GRAPH.length());
+        for (int i = 0; i < 40; i += 1) {
+            int gen = 1 + Math.max(
+                _p1[i] < 0 ? 0 : CommitGraph.generation(_ids[_p1[i]]),
+                _p2[i] < 0 ? 0 : CommitGraph.generation(_ids[_p2[i]]));
+            assertEquals(gen, CommitGraph.generation(_ids[i]));
+        }
+    }
+
+    @Test
+    public void testBackfill() {
+        TestUtils.freshRepo();
+        Random random = new Random(62);
+        randomHistory(200, random);
+        CommitGraph.GRAPH.delete();
+        reload();
+        assertEquals(_ids[0], CommitGraph.splitPoint(_ids[0], _ids[0]));
+        assertEquals(HEADER + (long) RECORD, CommitGraph.GRAPH.length());
+        checkQueries(300, random);
+        reload();
+        checkQueries(100, random);
+    }
+
+    @Test
+    public void testRepair() throws Exception {
+        TestUtils.freshRepo();
+        Random random = new Random(63);
+        randomHistory(30, random);
+        try (RandomAccessFile f =
+                 new RandomAccessFile(CommitGraph.GRAPH, "rw")) {
+            f.setLength(f.length() + RECORD / 2);
+        }
+        reload();
+        checkQueries(50, random);
+        assertEquals(HEADER + 30L * RECORD, CommitGraph.GRAPH.length());
+        try (RandomAccessFile f =
+                 new RandomAccessFile(CommitGraph.GRAPH, "rw")) {
+            f.writeInt(0);
+        }
+        reload();
+        checkQueries(50, random);
+        assertEquals(HEADER, CommitGraph.GRAPH.length() % RECORD);
+    }
+
+    @Test
+    public void testRandomHistories() {
+        Random random = new Random(64);
+        for (int trial = 0; trial < 5; trial += 1) {
+            TestUtils.freshRepo();
+            randomHistory(300, random);
+            checkQueries(400, random);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** The codec that compresses blobs with java.util.zip's Deflater, and
+ *  releases the native compressor and decompressor when their streams
+ *  are closed.
+ *  @author Vedant Bhatter
+ */
+class DeflateCodec implements Codec {
+
+    /** Size of the streams' buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "deflate";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,384 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/** A fast codec that trades compression for speed.  The data are cut into
+ *  blocks of at most BLOCK bytes, each written as its raw length and its
+ *  stored length (both ints), then its contents, and the end is marked by
+ *  a raw length of 0.  A block no shorter stored than raw is stored as it
+ *  is; otherwise it is a series of sequences, each a token byte (the
+ *  numbers of literals and of matched bytes less MIN_MATCH, four bits
+ *  each, 15 meaning that more follow in bytes up to the first that is not
+ *  255), the literals, and the match: a two-byte distance back into the
+ *  block and the bytes copied from there.  The last sequence in a block
+ *  has literals only.  Matches are found through a hash table of the
+ *  positions of recent four-byte strings, without search or lazy
+ *  matching, in the manner of LZ4.
+ *  @author Vedant Bhatter
+ */
+class LzCodec implements Codec {
+
+    /** Largest block. */
+    static final int BLOCK = 1 << 16;
+
+    /** Shortest match. */
+    private static final int MIN_MATCH = 4;
+
+    /** Log of the size of the hash table. */
+    private static final int HASH_BITS = 14;
+
+    /** Largest distance of a match. */
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "lz";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return new Compressor(out);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        return new Decompressor(in);
+    }
+
+    /** Compress SRC[0 .. N-1] into DST, which must have room for at least
+     *  N + N / 255 + 16 bytes, and return the number of bytes written.
+     *  @param src the data.
+     *  @param n its length.
+     *  @param dst the result.
+     *  @return the compressed length. */
+    static int compressBlock(byte[] src, int n, byte[] dst) {
+        int[] table = new int[1 << HASH_BITS];
+        Arrays.fill(table, -1);
+        int i = 0, anchor = 0, out = 0;
+        while (i + MIN_MATCH <= n) {
+            int h = hash(src, i);
+            int ref = table[h];
+            table[h] = i;
+            if (ref < 0 || i - ref > MAX_DISTANCE || !same(src, ref, i)) {
+                i += 1;
+                continue;
+            }
+            int len = MIN_MATCH;
+            while (i + len < n && src[ref + len] == src[i + len]) {
+                len += 1;
+            }
+            out = literals(src, anchor, i - anchor, len - MIN_MATCH, dst, out);
+            dst[out] = (byte) (i - ref);
+            dst[out + 1] = (byte) ((i - ref) >>> 8);
+            out = extension(len - MIN_MATCH, dst, out + 2);
+            i += len;
+            anchor = i;
+        }
+        return literals(src, anchor, n - anchor, 0, dst, out);
+    }
+
+    /** Decompress the block SRC[0 .. N-1] into DST and return the number of
+     *  bytes produced.
+     *  @param src the compressed block.
+     *  @param n its length.
+     *  @param dst the result.
+     *  @return the decompressed length. */
+    static int decompressBlock(byte[] src, int n, byte[] dst) {
+        int in = 0, out = 0;
+        try {
+            while (in < n) {
+                int token = src[in++] & 0xff;
+                int lits = token >>> 4;
+                if (lits == 15) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xff;
+                        lits += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, in, dst, out, lits);
+                in += lits;
+                out += lits;
+                if (in == n) {
+                    break;
+                }
+                int dist = (src[in] & 0xff) | (src[in + 1] & 0xff) << 8;
+                in += 2;
+                int len = token & 15;
+                if (len == 15) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xff;
+                        len += b;
+                    } while (b == 255);
+                }
+                len += MIN_MATCH;
+                if (dist == 0 || dist > out) {
+                    throw Utils.error("corrupt compressed blob");
+                }
+                for (int k = 0; k < len; k += 1) {
+                    dst[out] = dst[out - dist];
+                    out += 1;
+                }
+            }
+        } catch (IndexOutOfBoundsException excp) {
+            throw Utils.error("corrupt compressed blob");
+        }
+        return out;
+    }
+
+    /** Write to DST at OUT the token for LITS literals and a match of
+     *  MATCH + MIN_MATCH bytes, followed by the literals, SRC[FROM .. FROM +
+     *  LITS - 1], and return the position after them.
+     *  @param src the data.
+     *  @param from the first literal.
+     *  @param lits the number of literals.
+     *  @param match the match length less MIN_MATCH.
+     *  @param dst the result.
+     *  @param out where to write.
+     *  @return the new position in DST. */
+    private static int literals(byte[] src, int from, int lits, int match,
+                                byte[] dst, int out) {
+        dst[out] = (byte) (Math.min(lits, 15) << 4 | Math.min(match, 15));
+        out = extension(lits, dst, out + 1);
+        System.arraycopy(src, from, dst, out, lits);
+        return out + lits;
+    }
+
+    /** Write to DST at OUT the bytes continuing the count N, if it did not
+     *  fit in four bits, and return the position after them.
+     *  @param n the count.
+     *  @param dst the result.
+     *  @param out where to write.
+     *  @return the new position in DST. */
+    private static int extension(int n, byte[] dst, int out) {
+        if (n < 15) {
+            return out;
+        }
+        n -= 15;
+        while (n >= 255) {
+            dst[out++] = (byte) 255;
+            n -= 255;
+        }
+        dst[out++] = (byte) n;
+        return out;
+    }
+
+    /** Return the hash of the four bytes of DATA at I.
+     *  @param data the data.
+     *  @param i a position.
+     *  @return its hash. */
+    private static int hash(byte[] data, int i) {
+        return (word(data, i) * -1640531535) >>> (32 - HASH_BITS);
+    }
+
+    /** Return true iff the four bytes of DATA at I and J are the same.
+     *  @param data the data.
+     *  @param i a position.
+     *  @param j a position.
+     *  @return whether they match. */
+    private static boolean same(byte[] data, int i, int j) {
+        return word(data, i) == word(data, j);
+    }
+
+    /** Return the four bytes of DATA at I as an int.
+     *  @param data the data.
+     *  @param i a position.
+     *  @return the bytes. */
+    private static int word(byte[] data, int i) {
+        return (data[i] & 0xff) | (data[i + 1] & 0xff) << 8
+            | (data[i + 2] & 0xff) << 16 | (data[i + 3] & 0xff) << 24;
+    }
+
+    /** A stream that compresses what is written to it a block at a time. */
+    private static class Compressor extends FilterOutputStream {
+
+        /** A stream compressing onto OUT.
+         *  @param out the stream to write blocks onto. */
+        Compressor(OutputStream out) {
+            super(new DataOutputStream(out));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (_size == BLOCK) {
+                flushBlock();
+            }
+            _block[_size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (_size == BLOCK) {
+                    flushBlock();
+                }
+                int k = Math.min(len, BLOCK - _size);
+                System.arraycopy(b, off, _block, _size, k);
+                _size += k;
+                off += k;
+                len -= k;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+            flushBlock();
+            ((DataOutputStream) out).writeInt(0);
+            super.close();
+        }
+
+        /** Write out the data gathered so far as a block, if there are
+         *  any. */
+        private void flushBlock() throws IOException {
+            if (_size == 0) {
+                return;
+            }
+            DataOutputStream data = (DataOutputStream) out;
+            int n = compressBlock(_block, _size, _packed);
+            data.writeInt(_size);
+            if (n < _size) {
+                data.writeInt(n);
+                data.write(_packed, 0, n);
+            } else {
+                data.writeInt(_size);
+                data.write(_block, 0, _size);
+            }
+            _size = 0;
+        }
+
+        /** Data not yet written out. */
+        private final byte[] _block = new byte[BLOCK];
+
+        /** Number of bytes in _block. */
+        private int _size;
+
+        /** Room for a compressed block. */
+        private final byte[] _packed = new byte[BLOCK + BLOCK / 255 + 16];
+
+        /** True once the end has been written. */
+        private boolean _closed;
+    }
+
+    /** A stream that decompresses a block at a time. */
+    private static class Decompressor extends FilterInputStream {
+
+        /** A stream decompressing IN.
+         *  @param in the stream of blocks. */
+        Decompressor(InputStream in) {
+            super(new DataInputStream(in));
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return _block[_pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int k = Math.min(len, _size - _pos);
+            System.arraycopy(_block, _pos, b, off, k);
+            _pos += k;
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return _size - _pos;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && fill()) {
+                int k = (int) Math.min(n - skipped, _size - _pos);
+                _pos += k;
+                skipped += k;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /** Make sure there are bytes in _block to read, if there are any
+         *  left, and return false if there are not.
+         *  @return whether there are bytes to read. */
+        private boolean fill() throws IOException {
+            DataInputStream data = (DataInputStream) in;
+            while (_pos == _size) {
+                if (_done) {
+                    return false;
+                }
+                int raw, stored;
+                try {
+                    raw = data.readInt();
+                    if (raw == 0) {
+                        _done = true;
+                        return false;
+                    }
+                    stored = data.readInt();
+                } catch (EOFException excp) {
+                    throw Utils.error("truncated compressed blob");
+                }
+                if (raw < 0 || raw > BLOCK || stored < 0 || stored > raw) {
+                    throw Utils.error("corrupt compressed blob");
+                }
+                if (stored == raw) {
+                    data.readFully(_block, 0, raw);
+                } else {
+                    data.readFully(_packed, 0, stored);
+                    if (decompressBlock(_packed, stored, _block) != raw) {
+                        throw Utils.error("corrupt compressed blob");
+                    }
+                }
+                _pos = 0;
+                _size = raw;
+            }
+            return true;
+        }
+
+        /** The current block. */
+        private final byte[] _block = new byte[BLOCK];
+
+        /** Room for a compressed block. */
+        private final byte[] _packed = new byte[BLOCK];
+
+        /** Position of the next byte in _block. */
+        private int _pos;
+
+        /** Number of bytes in _block. */
+        private int _size;
+
+        /** True once the end has been read. */
+        private boolean _done;
+    }
+}
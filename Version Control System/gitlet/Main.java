@@ -8,7 +8,8 @@ package gitlet;
 public class Main {
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  <COMMAND> <OPERAND> ....  If the system property gitlet.stats is
+     *  true, reports the object cache's hits and misses at the end. */
     public static void main(String... args) {
 
         if (args.length == 0) {
@@ -65,9 +66,16 @@ public class Main {
         case "merge":
             Repo.merge(args[1]);
             break;
+        case "repack":
+            Repo.repack();
+            break;
         default:
             System.out.println("No command with that name exists.");
         }
+        if (Boolean.getBoolean("gitlet.stats")) {
+            System.err.printf("object cache: %d hits, %d misses%n",
+                    ObjectStore.cacheHits(), ObjectStore.cacheMisses());
+        }
     }
 
 
@@ -0,0 +1,569 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/** Where commits, blobs and branches are kept.  New objects are written
+ *  loose, one file each under .gitlet/commit and .gitlet/blob, as they
+ *  always were; the repack command moves them into a pack (see Pack) in
+ *  .gitlet/pack.  Reads look for a loose object first and then in the
+ *  packs, so that callers never need to know where an object lives.
+ *  Blobs are stored compressed (see Codec), behind a header of BLOB_MAGIC,
+ *  the format version and the codec's id; a blob without the header was
+ *  stored, uncompressed, before there were codecs, and is read as it is.
+ *  Commits, once read or written, are kept in a small cache for the rest
+ *  of the command, so that each is usually read from disk at most once.
+ *  Branches are kept for the rest of the command without limit, since
+ *  they are few and commands rely on every read of a branch returning the
+ *  same object: changes staged in it by one step of a command are seen
+ *  by the next.
+ *  @author Vedant Bhatter
+ */
+class ObjectStore {
+
+    /** Directory holding packs. */
+    static final File PACK = Utils.join(Repo.GITLET, "pack");
+
+    /** Directory holding objects being written.  They are kept apart from
+     *  the objects themselves, so that one left by an interrupted command
+     *  is never taken for an object. */
+    static final File TMP = Utils.join(Repo.GITLET, "tmp");
+
+    /** Largest number of commits cached. */
+    static final int CACHE_SIZE = 1024;
+
+    /** Files larger than this are mapped into memory, not read, when
+     *  stored as blobs. */
+    static final long MAP_THRESHOLD = 1 << 20;
+
+    /** Largest part of a file mapped at once. */
+    static final long MAP_CHUNK = 1 << 30;
+
+    /** Bytes starting the header of a compressed blob. */
+    private static final byte[] BLOB_MAGIC = { 0, 'G', 'L', 'Z' };
+
+    /** Format version of compressed blobs. */
+    private static final byte BLOB_VERSION = 1;
+
+    /** Bytes in the header of a compressed blob. */
+    private static final int BLOB_HEADER = BLOB_MAGIC.length + 2;
+
+    /** Size of the buffers used in copying blobs. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Return the commit whose id is ID, or null if there is none.
+     *  @param id the commit id.
+     *  @return the commit. */
+    static Commit readCommit(String id) {
+        Commit cached = counted(_commits.get(id));
+        if (cached != null) {
+            return cached;
+        }
+        Commit result = null;
+        File loose = Utils.join(Repo.COMMIT, id);
+        if (loose.isFile()) {
+            result = Utils.readObject(loose, Commit.class);
+        } else {
+            for (Pack pack : packs()) {
+                int i = pack.find(id, Pack.COMMIT);
+                if (i >= 0) {
+                    result = deserialize(pack.read(i), Commit.class);
+                    break;
+                }
+            }
+        }
+        if (result != null) {
+            _commits.put(id, result);
+        }
+        return result;
+    }
+
+    /** Store COMMIT, and record it in the commit graph.
+     *  @param commit the commit. */
+    static void writeCommit(Commit commit) {
+        Utils.writeObject(Utils.join(Repo.COMMIT, commit.getId()), commit);
+        _commits.put(commit.getId(), commit);
+        CommitGraph.add(commit);
+    }
+
+    /** Return the branch named NAME.
+     *  @param name the branch name.
+     *  @return the branch. */
+    static Branch readBranch(String name) {
+        Branch cached = counted(_branches.get(name));
+        if (cached != null) {
+            return cached;
+        }
+        Branch result =
+            Utils.readObject(Utils.join(Repo.BRANCH, name), Branch.class);
+        _branches.put(name, result);
+        return result;
+    }
+
+    /** Store BRANCH, replacing any branch of the same name.
+     *  @param branch the branch. */
+    static void writeBranch(Branch branch) {
+        Utils.writeObject(Utils.join(Repo.BRANCH, branch.getName()), branch);
+        _branches.put(branch.getName(), branch);
+    }
+
+    /** Delete the branch named NAME.
+     *  @param name the branch name. */
+    static void deleteBranch(String name) {
+        _branches.remove(name);
+        Utils.join(Repo.BRANCH, name).delete();
+    }
+
+    /** Return true iff there is a branch named NAME.
+     *  @param name the branch name.
+     *  @return whether it exists. */
+    static boolean hasBranch(String name) {
+        return _branches.containsKey(name)
+            || Utils.join(Repo.BRANCH, name).isFile();
+    }
+
+    /** Return the number of reads of commits and branches answered from
+     *  the cache.
+     *  @return the count. */
+    static long cacheHits() {
+        return _hits;
+    }
+
+    /** Return the number of reads of commits and branches that went to
+     *  disk.
+     *  @return the count. */
+    static long cacheMisses() {
+        return _misses;
+    }
+
+    /** Return RESULT, the result of looking up a commit or branch in the
+     *  cache, counting the lookup as a hit or, if RESULT is null, a miss.
+     *  @param result the object found, or null.
+     *  @param <T> its type.
+     *  @return RESULT. */
+    private static <T> T counted(T result) {
+        if (result == null) {
+            _misses += 1;
+        } else {
+            _hits += 1;
+        }
+        return result;
+    }
+
+    /** Return true iff there is a commit whose id is ID.
+     *  @param id the commit id.
+     *  @return whether it exists. */
+    static boolean hasCommit(String id) {
+        return has(Repo.COMMIT, id, Pack.COMMIT);
+    }
+
+    /** Return the ids of all commits, in order.
+     *  @return the ids. */
+    static List<String> commitIds() {
+        return ids(Repo.COMMIT, Pack.COMMIT);
+    }
+
+    /** Return the id of a commit whose id starts with PREFIX, or null if
+     *  there is none.  Packs are searched through their indices; the loose
+     *  commits are listed only if no pack holds a match.
+     *  @param prefix the abbreviated id.
+     *  @return the full id. */
+    static String findCommit(String prefix) {
+        if (hasCommit(prefix)) {
+            return prefix;
+        }
+        for (Pack pack : packs()) {
+            int i = pack.findPrefix(prefix, Pack.COMMIT);
+            if (i >= 0) {
+                return pack.id(i);
+            }
+        }
+        List<String> loose = Utils.plainFilenamesIn(Repo.COMMIT);
+        if (loose != null) {
+            for (String name : loose) {
+                if (isId(name) && name.startsWith(prefix)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the contents of the blob whose id is ID.
+     *  @param id the blob id.
+     *  @return the contents. */
+    static byte[] readBlob(String id) {
+        try (InputStream in = openBlob(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw Utils.error("cannot read blob %s", id);
+        }
+    }
+
+    /** Write the contents of the blob whose id is ID to TARGET, replacing
+     *  whatever it held.  The blob is decompressed as it is copied, so a
+     *  large one is never all in memory.
+     *  @param id the blob id.
+     *  @param target the file to write. */
+    static void copyBlob(String id, File target) {
+        try (InputStream in = openBlob(id);
+             OutputStream out = new FileOutputStream(target)) {
+            in.transferTo(out);
+        } catch (IOException excp) {
+            throw Utils.error("cannot write %s", target);
+        }
+    }
+
+    /** Return a stream of the contents of the blob whose id is ID.
+     *  @param id the blob id.
+     *  @return the stream. */
+    private static InputStream openBlob(String id) throws IOException {
+        InputStream stored = null;
+        File loose = Utils.join(Repo.BLOB, id);
+        if (loose.isFile()) {
+            stored = new FileInputStream(loose);
+        } else {
+            for (Pack pack : packs()) {
+                int i = pack.find(id, Pack.BLOB);
+                if (i >= 0) {
+                    stored = pack.open(i);
+                    break;
+                }
+            }
+        }
+        if (stored == null) {
+            throw Utils.error("missing blob %s", id);
+        }
+        BufferedInputStream in = new BufferedInputStream(stored, BUFFER_SIZE);
+        in.mark(BLOB_HEADER);
+        byte[] header = in.readNBytes(BLOB_HEADER);
+        if (header.length == BLOB_HEADER
+            && Arrays.equals(header, 0, BLOB_MAGIC.length,
+                             BLOB_MAGIC, 0, BLOB_MAGIC.length)
+            && header[BLOB_MAGIC.length] == BLOB_VERSION) {
+            return Codec.forId(header[BLOB_MAGIC.length + 1]).decompress(in);
+        }
+        in.reset();
+        return in;
+    }
+
+    /** Return the contents of the blob whose id is ID as a String.
+     *  @param id the blob id.
+     *  @return the contents. */
+    static String readBlobAsString(String id) {
+        return new String(readBlob(id), StandardCharsets.UTF_8);
+    }
+
+    /** Store the contents of SOURCE as a blob, unless that blob is
+     *  already stored, and return its id (the SHA-1 hash of the contents,
+     *  as Utils.sha1 computes it).  SOURCE is read once: a small file into
+     *  an array, a larger one by mapping it into memory, so that it is
+     *  never all on the heap.  A new blob is compressed with the current
+     *  codec, or stored as it is if that does not make it smaller, written
+     *  under a temporary name and renamed into place once complete.
+     *  @param source the file.
+     *  @return the blob id. */
+    static String writeBlob(File source) {
+        try (FileChannel in = FileChannel.open(source.toPath())) {
+            long size = in.size();
+            ArrayList<ByteBuffer> chunks = new ArrayList<>();
+            if (size <= MAP_THRESHOLD) {
+                ByteBuffer buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining() && in.read(buf) >= 0) {
+                    continue;
+                }
+                buf.flip();
+                chunks.add(buf);
+            } else {
+                for (long at = 0; at < size; at += MAP_CHUNK) {
+                    chunks.add(in.map(FileChannel.MapMode.READ_ONLY, at,
+                                      Math.min(MAP_CHUNK, size - at)));
+                }
+            }
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (ByteBuffer chunk : chunks) {
+                md.update(chunk.duplicate());
+            }
+            StringBuilder id = new StringBuilder(Utils.UID_LENGTH);
+            for (byte b : md.digest()) {
+                id.append(String.format("%02x", b));
+            }
+            if (!hasBlob(id.toString())) {
+                store(chunks, size, Utils.join(Repo.BLOB, id.toString()));
+            }
+            return id.toString();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support"
+                                               + " SHA-1");
+        }
+    }
+
+    /** Write the SIZE bytes remaining in CHUNKS, in order, to a temporary
+     *  file in TMP as a compressed blob and then rename it to TARGET.
+     *  @param chunks the contents.
+     *  @param size their length.
+     *  @param target the file to create. */
+    private static void store(List<ByteBuffer> chunks, long size,
+                              File target) throws IOException {
+        TMP.mkdir();
+        File tmp = File.createTempFile("blob", ".tmp", TMP);
+        try {
+            Codec codec = Codec.current();
+            encode(chunks, codec, tmp);
+            if (codec != Codec.NONE && tmp.length() >= BLOB_HEADER + size) {
+                encode(chunks, Codec.NONE, tmp);
+            }
+            Files.move(tmp.toPath(), target.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /** Write the bytes remaining in CHUNKS, in order, to FILE, compressed
+     *  by CODEC, after a blob header.
+     *  @param chunks the contents.
+     *  @param codec the codec.
+     *  @param file the file to write. */
+    private static void encode(List<ByteBuffer> chunks, Codec codec,
+                               File file) throws IOException {
+        try (OutputStream raw = new BufferedOutputStream(
+                 new FileOutputStream(file), BUFFER_SIZE)) {
+            raw.write(BLOB_MAGIC);
+            raw.write(BLOB_VERSION);
+            raw.write(codec.id());
+            OutputStream out = codec.compress(raw);
+            byte[] buf = new byte[BUFFER_SIZE];
+            for (ByteBuffer chunk : chunks) {
+                ByteBuffer data = chunk.duplicate();
+                while (data.hasRemaining()) {
+                    int n = Math.min(buf.length, data.remaining());
+                    data.get(buf, 0, n);
+                    out.write(buf, 0, n);
+                }
+            }
+            out.close();
+        }
+    }
+
+    /** Return true iff there is a blob whose id is ID.
+     *  @param id the blob id.
+     *  @return whether it exists. */
+    static boolean hasBlob(String id) {
+        return has(Repo.BLOB, id, Pack.BLOB);
+    }
+
+    /** Move every loose object, and the contents of every existing pack,
+     *  into a single new pack, then delete the loose objects and the old
+     *  packs.  Does nothing if there is nothing to gain.
+     *  @return the number of objects in the new pack. */
+    static int repack() {
+        List<Pack> old = packs();
+        ArrayList<File> loose = new ArrayList<>();
+        ArrayList<Pack.Source> sources = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        addLoose(Repo.COMMIT, Pack.COMMIT, loose, sources, seen);
+        addLoose(Repo.BLOB, Pack.BLOB, loose, sources, seen);
+        if (loose.isEmpty() && old.size() <= 1) {
+            return old.isEmpty() ? 0 : old.get(0).size();
+        }
+        for (Pack pack : old) {
+            for (int i = 0; i < pack.size(); i += 1) {
+                if (seen.add(pack.id(i))) {
+                    sources.add(pack.source(i));
+                }
+            }
+        }
+        PACK.mkdir();
+        Pack made = Pack.write(PACK, sources);
+        for (Pack pack : old) {
+            if (!pack.file().equals(made.file())) {
+                pack.delete();
+            }
+        }
+        for (File f : loose) {
+            f.delete();
+        }
+        _packs = null;
+        return made.size();
+    }
+
+    /** Add each loose object in DIR, of kind KIND, to SOURCES and its file
+     *  to LOOSE, unless its id is in SEEN, which it is then added to.
+     *  Files whose names are not ids are left alone.
+     *  @param dir the directory of loose objects.
+     *  @param kind their kind.
+     *  @param loose the loose files.
+     *  @param sources the objects to pack.
+     *  @param seen the ids of the objects to pack. */
+    private static void addLoose(File dir, byte kind, List<File> loose,
+                                 List<Pack.Source> sources,
+                                 HashSet<String> seen) {
+        List<String> names = Utils.plainFilenamesIn(dir);
+        if (names == null) {
+            return;
+        }
+        for (String id : names) {
+            if (!isId(id)) {
+                continue;
+            }
+            File f = Utils.join(dir, id);
+            loose.add(f);
+            if (seen.add(id)) {
+                sources.add(new Pack.Source(id, kind, f));
+            }
+        }
+    }
+
+    /** Return true iff there is an object of kind KIND whose id is ID,
+     *  looking loose in DIR and then in the packs.
+     *  @param dir the directory of loose objects.
+     *  @param id the object id.
+     *  @param kind the object kind.
+     *  @return whether it exists. */
+    private static boolean has(File dir, String id, byte kind) {
+        if (!isId(id)) {
+            return false;
+        }
+        if (Utils.join(dir, id).isFile()) {
+            return true;
+        }
+        for (Pack pack : packs()) {
+            if (pack.find(id, kind) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the ids of the objects of kind KIND, loose in DIR or packed,
+     *  in order.
+     *  @param dir the directory of loose objects.
+     *  @param kind the object kind.
+     *  @return the ids. */
+    private static List<String> ids(File dir, byte kind) {
+        TreeSet<String> result = new TreeSet<>();
+        List<String> loose = Utils.plainFilenamesIn(dir);
+        if (loose != null) {
+            for (String name : loose) {
+                if (isId(name)) {
+                    result.add(name);
+                }
+            }
+        }
+        for (Pack pack : packs()) {
+            result.addAll(pack.ids(kind));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Return true iff NAME is a complete object id: UID_LENGTH lower-case
+     *  hexadecimal digits.
+     *  @param name a file name or id.
+     *  @return whether it is an id. */
+    static boolean isId(String name) {
+        if (name.length() != Utils.UID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i += 1) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Forget the cached commits and branches and the open packs, and
+     *  reset the cache counts, as if a new command were starting. */
+    static void reset() {
+        if (_packs != null) {
+            for (Pack pack : _packs) {
+                pack.close();
+            }
+            _packs = null;
+        }
+        _commits.clear();
+        _branches.clear();
+        _hits = _misses = 0;
+    }
+
+    /** Return the packs, opening them the first time.
+     *  @return the packs. */
+    private static List<Pack> packs() {
+        if (_packs == null) {
+            _packs = new ArrayList<>();
+            File[] files = PACK.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.getName().endsWith(".pack")
+                        && Pack.indexFor(f).isFile()) {
+                        _packs.add(new Pack(f));
+                    }
+                }
+            }
+        }
+        return _packs;
+    }
+
+    /** Return the object of class EXPECTEDCLASS serialized in BYTES.
+     *  @param bytes the serialized object.
+     *  @param expectedClass its class.
+     *  @param <T> its type.
+     *  @return the object. */
+    private static <T extends Serializable> T deserialize(
+            byte[] bytes, Class<T> expectedClass) {
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return expectedClass.cast(in.readObject());
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The packs, once opened. */
+    private static List<Pack> _packs;
+
+    /** Commits by id, least recently used first. */
+    private static final LinkedHashMap<String, Commit> _commits =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, Commit> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    /** Branches by name. */
+    private static final HashMap<String, Branch> _branches = new HashMap<>();
+
+    /** Cache lookup counts. */
+    private static long _hits, _misses;
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+/** The suite of all JUnit tests for the ObjectStore class.
+ *  @author Vedant Bhatter
+ */
+public class ObjectStoreTest {
+
+    @Test
+    public void testCacheCounts() {
+        TestUtils.freshRepo();
+        String id = TestUtils.commit("c", null, null, 0).getId();
+        ObjectStore.writeBranch(new Branch("master", id));
+        ObjectStore.reset();
+        Branch master = ObjectStore.readBranch("master");
+        Commit commit = ObjectStore.readCommit(id);
+        assertEquals(0, ObjectStore.cacheHits());
+        assertEquals(2, ObjectStore.cacheMisses());
+        assertSame(master, ObjectStore.readBranch("master"));
+        assertSame(commit, ObjectStore.readCommit(id));
+        assertEquals(2, ObjectStore.cacheHits());
+        assertNull(ObjectStore.readCommit(id.replace(id.charAt(0), 'x')));
+        assertEquals(3, ObjectStore.cacheMisses());
+    }
+
+    @Test
+    public void testBranchInvalidation() {
+        TestUtils.freshRepo();
+        String id = TestUtils.commit("c", null, null, 0).getId();
+        Branch first = new Branch("topic", id);
+        ObjectStore.writeBranch(first);
+        assertSame(first, ObjectStore.readBranch("topic"));
+        Branch second = new Branch("topic", id);
+        ObjectStore.writeBranch(second);
+        assertSame(second, ObjectStore.readBranch("topic"));
+        assertTrue(ObjectStore.hasBranch("topic"));
+        ObjectStore.deleteBranch("topic");
+        assertFalse(ObjectStore.hasBranch("topic"));
+        ObjectStore.writeBranch(first);
+        ObjectStore.reset();
+        assertTrue(ObjectStore.hasBranch("topic"));
+        assertNotSame(first, ObjectStore.readBranch("topic"));
+    }
+
+    @Test
+    public void testBranchOutlivesCommits() {
+        TestUtils.freshRepo();
+        String parent = null;
+        for (int i = 0; i <= ObjectStore.CACHE_SIZE; i += 1) {
+            parent = TestUtils.commit("c" + i, parent, null, i).getId();
+        }
+        ObjectStore.writeBranch(new Branch("master", parent));
+        ObjectStore.reset();
+        CommitGraph.reset();
+        CommitGraph.GRAPH.delete();
+        Branch master = ObjectStore.readBranch("master");
+        master.addFile("staged", parent);
+        assertEquals(ObjectStore.CACHE_SIZE + 1,
+                     CommitGraph.generation(master.getHead()));
+        assertSame(master, ObjectStore.readBranch("master"));
+        assertEquals(parent, master.getStagingAreaAdd().get("staged"));
+    }
+
+    @Test
+    public void testWriteBlob() {
+        TestUtils.freshRepo();
+        Random random = new Random(24);
+        int threshold = (int) ObjectStore.MAP_THRESHOLD;
+        for (int size : new int[] { 0, 1, threshold - 1, threshold,
+                                    threshold + 1, 3 * threshold + 7 }) {
+            byte[] contents = new byte[size];
+            random.nextBytes(contents);
+            for (int i = 0; i < size; i += 3) {
+                contents[i] = 'a';
+            }
+            File f = TestUtils.scratchFile("blob" + size, contents);
+            String id = ObjectStore.writeBlob(f);
+            assertEquals(Utils.sha1(Utils.readContents(f)), id);
+            assertTrue(ObjectStore.hasBlob(id));
+            assertArrayEquals(contents, ObjectStore.readBlob(id));
+            File copy = Utils.join(TestUtils.SCRATCH, "copy");
+            ObjectStore.copyBlob(id, copy);
+            assertArrayEquals(contents, Utils.readContents(copy));
+        }
+        assertEquals(List.of(), Utils.plainFilenamesIn(ObjectStore.TMP));
+        for (String name : Utils.plainFilenamesIn(Repo.BLOB)) {
+            assertTrue(name, ObjectStore.isId(name));
+        }
+    }
+
+    @Test
+    public void testWriteBlobSkipsStored() {
+        TestUtils.freshRepo();
+        File f = TestUtils.scratchFile("f", "contents".getBytes());
+        String id = ObjectStore.writeBlob(f);
+        File stored = Utils.join(Repo.BLOB, id);
+        Utils.writeContents(stored, "marker");
+        assertEquals(id, ObjectStore.writeBlob(f));
+        assertEquals("marker", Utils.readContentsAsString(stored));
+        assertEquals("marker", ObjectStore.readBlobAsString(id));
+    }
+
+}
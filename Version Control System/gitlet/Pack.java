@@ -0,0 +1,533 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A packfile: many objects stored end to end in one file, with a
+ *  separate index file.  The index holds the objects' ids in sorted order
+ *  (bucketed by their first byte) and, for each, its kind and where it
+ *  lies in the pack.  The index is memory-mapped, so finding an object is
+ *  a binary search over the mapped ids without reading anything else.
+ *  Packs are written once, by write, and never changed.
+ *  @author Vedant Bhatter
+ */
+class Pack {
+
+    /** Kind of a commit. */
+    static final byte COMMIT = 1;
+
+    /** Kind of a blob. */
+    static final byte BLOB = 2;
+
+    /** Length of an id in bytes. */
+    static final int ID_BYTES = Utils.UID_LENGTH / 2;
+
+    /** Magic numbers starting packs and indices. */
+    private static final int PACK_MAGIC = 0x4750414b, INDEX_MAGIC = 0x47494458;
+
+    /** Format version of packs and indices. */
+    private static final int VERSION = 1;
+
+    /** Bytes before the first object of a pack. */
+    private static final int PACK_HEADER = 8;
+
+    /** Bytes before the fanout table of an index. */
+    private static final int INDEX_HEADER = 12;
+
+    /** Position of the ids in an index. */
+    private static final int IDS = INDEX_HEADER + 256 * 4;
+
+    /** Hexadecimal digits, by value. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** An object to be written to a pack: its ID and KIND, and the LENGTH
+     *  bytes of FILE starting at OFFSET that hold it. */
+    static class Source {
+        /** Id. */
+        private final String _id;
+        /** Kind. */
+        private final byte _kind;
+        /** File holding the object's bytes. */
+        private final File _file;
+        /** Where the object's bytes are in _file. */
+        private final long _offset, _length;
+
+        /** A source for the object ID of kind KIND held in the LENGTH bytes
+         *  of FILE at OFFSET. */
+        Source(String id, byte kind, File file, long offset, long length) {
+            _id = id;
+            _kind = kind;
+            _file = file;
+            _offset = offset;
+            _length = length;
+        }
+
+        /** A source for the object ID of kind KIND that is all of FILE. */
+        Source(String id, byte kind, File file) {
+            this(id, kind, file, 0, file.length());
+        }
+
+        /** Return the id.
+         *  @return the object's id. */
+        String id() {
+            return _id;
+        }
+    }
+
+    /** Open the pack whose pack file is PACKFILE, with its index beside
+     *  it.
+     *  @param packFile the pack file. */
+    Pack(File packFile) {
+        _packFile = packFile;
+        _indexFile = indexFor(packFile);
+        try (FileChannel channel = FileChannel.open(_indexFile.toPath())) {
+            _index = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                 channel.size());
+        } catch (IOException excp) {
+            throw Utils.error("cannot read %s", _indexFile);
+        }
+        if (_index.capacity() < IDS || _index.getInt(0) != INDEX_MAGIC
+            || _index.getInt(4) != VERSION) {
+            throw Utils.error("bad pack index %s", _indexFile);
+        }
+        _count = _index.getInt(8);
+        if ((long) _index.capacity() != IDS + (long) _count * 37) {
+            throw Utils.error("bad pack index %s", _indexFile);
+        }
+    }
+
+    /** Return the index file of the pack in PACKFILE.
+     *  @param packFile the pack file.
+     *  @return the index file. */
+    static File indexFor(File packFile) {
+        String name = packFile.getName();
+        return new File(packFile.getParentFile(),
+                        name.substring(0, name.length() - ".pack".length())
+                        + ".idx");
+    }
+
+    /** Return the pack file.
+     *  @return the pack file. */
+    File file() {
+        return _packFile;
+    }
+
+    /** Return the number of objects.
+     *  @return the number of objects in this pack. */
+    int size() {
+        return _count;
+    }
+
+    /** Return the position of the object ID, of kind KIND, in my index, or
+     *  -1 if I do not hold it.
+     *  @param id the object id.
+     *  @param kind the object kind.
+     *  @return the position. */
+    int find(String id, byte kind) {
+        byte[] key = toBytes(id);
+        if (key == null) {
+            return -1;
+        }
+        int first = key[0] & 0xff;
+        int lo = first == 0 ? 0 : _index.getInt(INDEX_HEADER + 4 * first - 4);
+        int hi = _index.getInt(INDEX_HEADER + 4 * first) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return kind(mid) == kind ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the position of the first object of kind KIND whose id
+     *  starts with PREFIX, a string of lower-case hexadecimal digits, or -1
+     *  if I hold none.  The fanout table and a binary search find the first
+     *  id not less than PREFIX, and only the ids after it that start with
+     *  PREFIX are examined.
+     *  @param prefix the abbreviated id.
+     *  @param kind the object kind.
+     *  @return the position. */
+    int findPrefix(String prefix, byte kind) {
+        int n = prefix.length();
+        if (n > Utils.UID_LENGTH) {
+            return -1;
+        }
+        byte[] digits = new byte[n];
+        for (int k = 0; k < n; k += 1) {
+            char c = prefix.charAt(k);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return -1;
+            }
+            digits[k] = (byte) Character.digit(c, 16);
+        }
+        int firstByte = 0, lastByte = 255;
+        if (n == 1) {
+            firstByte = digits[0] << 4;
+            lastByte = firstByte | 15;
+        } else if (n > 1) {
+            firstByte = lastByte = digits[0] << 4 | digits[1];
+        }
+        int lo = firstByte == 0
+            ? 0 : _index.getInt(INDEX_HEADER + 4 * firstByte - 4);
+        int hi = _index.getInt(INDEX_HEADER + 4 * lastByte);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(mid, digits) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < _count && comparePrefix(i, digits) == 0;
+             i += 1) {
+            if (kind(i) == kind) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the id at position I of my index.
+     *  @param i the position.
+     *  @return the id. */
+    String id(int i) {
+        char[] result = new char[Utils.UID_LENGTH];
+        int at = IDS + i * ID_BYTES;
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int b = _index.get(at + k);
+            result[2 * k] = HEX[(b >> 4) & 15];
+            result[2 * k + 1] = HEX[b & 15];
+        }
+        return new String(result);
+    }
+
+    /** Return the kind of the object at position I.
+     *  @param i the position.
+     *  @return the kind. */
+    byte kind(int i) {
+        return _index.get(IDS + _count * ID_BYTES + i);
+    }
+
+    /** Return where the object at position I starts in the pack file.
+     *  @param i the position.
+     *  @return the offset. */
+    long offset(int i) {
+        return _index.getLong(IDS + _count * (ID_BYTES + 1) + 8 * i);
+    }
+
+    /** Return the length of the object at position I.
+     *  @param i the position.
+     *  @return the length. */
+    long length(int i) {
+        return _index.getLong(IDS + _count * (ID_BYTES + 9) + 8 * i);
+    }
+
+    /** Return the ids of all objects of kind KIND, in order.
+     *  @param kind the object kind.
+     *  @return the ids. */
+    List<String> ids(byte kind) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < _count; i += 1) {
+            if (kind(i) == kind) {
+                result.add(id(i));
+            }
+        }
+        return result;
+    }
+
+    /** Return the contents of the object at position I.
+     *  @param i the position.
+     *  @return the contents. */
+    byte[] read(int i) {
+        long length = length(i);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw Utils.error("object %s is too large", id(i));
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) length);
+        try {
+            FileChannel channel = channel();
+            long at = offset(i);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, at + buf.position()) < 0) {
+                    throw Utils.error("pack %s is truncated", _packFile);
+                }
+            }
+        } catch (IOException excp) {
+            throw Utils.error("cannot read %s", _packFile);
+        }
+        return buf.array();
+    }
+
+    /** Return a stream of the contents of the object at position I, read
+     *  from the pack file as they are needed.
+     *  @param i the position.
+     *  @return the stream. */
+    InputStream open(int i) {
+        long start = offset(i), end = start + length(i);
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (_at == end) {
+                    return -1;
+                }
+                ByteBuffer buf =
+                    ByteBuffer.wrap(b, off, (int) Math.min(len, end - _at));
+                int n = channel().read(buf, _at);
+                if (n < 0) {
+                    throw Utils.error("pack %s is truncated", _packFile);
+                }
+                _at += n;
+                return n;
+            }
+
+            /** Position in the pack file of the next byte. */
+            private long _at = start;
+        };
+    }
+
+    /** Return a source for the object at position I, for copying into a
+     *  new pack.
+     *  @param i the position.
+     *  @return the source. */
+    Source source(int i) {
+        return new Source(id(i), kind(i), _packFile, offset(i), length(i));
+    }
+
+    /** Close my pack file, if it is open. */
+    void close() {
+        try {
+            if (_channel != null) {
+                _channel.close();
+                _channel = null;
+            }
+        } catch (IOException excp) {
+            throw Utils.error("cannot close %s", _packFile);
+        }
+    }
+
+    /** Delete my pack and index files. */
+    void delete() {
+        close();
+        _indexFile.delete();
+        _packFile.delete();
+    }
+
+    /** Write the objects SOURCES, which must have distinct ids, to a new
+     *  pack in directory DIR, and return it.  The pack and its index are
+     *  written under temporary names and then renamed, pack first, so
+     *  that an index is only ever seen beside a complete pack; the
+     *  temporary files are removed whether or not that succeeds.
+     *  @param dir the pack directory.
+     *  @param sources the objects.
+     *  @return the new pack. */
+    static Pack write(File dir, List<Source> sources) {
+        ArrayList<Source> sorted = new ArrayList<>(sources);
+        sorted.sort((a, b) -> a._id.compareTo(b._id));
+        int n = sorted.size();
+        long[] offsets = new long[n];
+        ArrayList<Object> ids = new ArrayList<>();
+        for (Source s : sorted) {
+            if (toBytes(s._id) == null) {
+                throw Utils.error("bad object id %s", s._id);
+            }
+            ids.add(s._id);
+        }
+        String name = "pack-" + Utils.sha1(ids);
+        File packFile = new File(dir, name + ".pack");
+        File tmpPack = new File(dir, name + ".pack.tmp");
+        File tmpIndex = new File(dir, name + ".idx.tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmpPack.toPath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(PACK_HEADER);
+                header.putInt(PACK_MAGIC).putInt(VERSION).flip();
+                writeFully(out, header);
+                long at = PACK_HEADER;
+                for (int i = 0; i < n; i += 1) {
+                    Source s = sorted.get(i);
+                    offsets[i] = at;
+                    copy(s, out);
+                    at += s._length;
+                }
+                out.force(true);
+            }
+            ByteBuffer index =
+                ByteBuffer.allocate(Math.toIntExact(IDS + 37L * n));
+            index.putInt(INDEX_MAGIC).putInt(VERSION).putInt(n);
+            int[] fanout = new int[256];
+            for (Source s : sorted) {
+                fanout[toBytes(s._id)[0] & 0xff] += 1;
+            }
+            for (int b = 0, total = 0; b < 256; b += 1) {
+                total += fanout[b];
+                index.putInt(total);
+            }
+            for (Source s : sorted) {
+                index.put(toBytes(s._id));
+            }
+            for (Source s : sorted) {
+                index.put(s._kind);
+            }
+            for (long offset : offsets) {
+                index.putLong(offset);
+            }
+            for (Source s : sorted) {
+                index.putLong(s._length);
+            }
+            index.flip();
+            try (FileChannel out = FileChannel.open(tmpIndex.toPath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, index);
+                out.force(true);
+            }
+            Files.move(tmpPack.toPath(), packFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmpIndex.toPath(), indexFor(packFile).toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw Utils.error("cannot write pack: %s", excp.getMessage());
+        } finally {
+            tmpPack.delete();
+            tmpIndex.delete();
+        }
+        return new Pack(packFile);
+    }
+
+    /** Append the bytes of S to OUT.
+     *  @param s the object.
+     *  @param out the pack being written. */
+    private static void copy(Source s, FileChannel out) throws IOException {
+        try (FileChannel in = FileChannel.open(s._file.toPath())) {
+            long done = 0;
+            while (done < s._length) {
+                long got = in.transferTo(s._offset + done, s._length - done,
+                                         out);
+                if (got <= 0) {
+                    throw new IOException(s._file + " is truncated");
+                }
+                done += got;
+            }
+        }
+    }
+
+    /** Write all of BUF to OUT.
+     *  @param out the channel.
+     *  @param buf the bytes. */
+    private static void writeFully(FileChannel out, ByteBuffer buf)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /** Return the hexadecimal id ID as bytes, or null if it is not a
+     *  complete id.
+     *  @param id the id.
+     *  @return its bytes. */
+    private static byte[] toBytes(String id) {
+        if (id.length() != Utils.UID_LENGTH) {
+            return null;
+        }
+        byte[] result = new byte[ID_BYTES];
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int hi = Character.digit(id.charAt(2 * k), 16);
+            int lo = Character.digit(id.charAt(2 * k + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return null;
+            }
+            result[k] = (byte) (hi << 4 | lo);
+        }
+        return result;
+    }
+
+    /** Compare the id at position I with KEY.
+     *  @param i the position.
+     *  @param key the id's bytes.
+     *  @return negative, zero or positive as the id is less than, equal to
+     *  or greater than KEY. */
+    private int compare(int i, byte[] key) {
+        int at = IDS + i * ID_BYTES;
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int cmp = (_index.get(at + k) & 0xff) - (key[k] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /** Compare the leading hexadecimal digits of the id at position I
+     *  with DIGITS, one digit value per element.
+     *  @param i the position.
+     *  @param digits the digits of a prefix.
+     *  @return negative, zero or positive as the id's first digits are
+     *  less than, equal to or greater than DIGITS. */
+    private int comparePrefix(int i, byte[] digits) {
+        int at = IDS + i * ID_BYTES;
+        for (int k = 0; k < digits.length; k += 1) {
+            int b = _index.get(at + k / 2);
+            int digit = k % 2 == 0 ? (b >> 4) & 15 : b & 15;
+            if (digit != digits[k]) {
+                return digit - digits[k];
+            }
+        }
+        return 0;
+    }
+
+    /** Return my pack file, opened for reading.
+     *  @return the channel. */
+    private FileChannel channel() throws IOException {
+        if (_channel == null) {
+            _channel = FileChannel.open(_packFile.toPath());
+            ByteBuffer header = ByteBuffer.allocate(PACK_HEADER);
+            _channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < PACK_HEADER
+                || header.getInt() != PACK_MAGIC
+                || header.getInt() != VERSION) {
+                throw Utils.error("bad pack %s", _packFile);
+            }
+        }
+        return _channel;
+    }
+
+    /** Pack and index files. */
+    private final File _packFile, _indexFile;
+
+    /** The mapped index. */
+    private final MappedByteBuffer _index;
+
+    /** Number of objects. */
+    private final int _count;
+
+    /** Pack file, once opened. */
+    private FileChannel _channel;
+}
@@ -0,0 +1,204 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/** The suite of all JUnit tests for packs and repacking.
+ *  @author Vedant Bhatter
+ */
+public class PackTest {
+
+    /** Ids at and near the ends of the fanout table, and in its middle,
+     *  in order. */
+    private static final String[] IDS = {
+        "0000000000000000000000000000000000000000",
+        "00000000000000000000000000000000000000ff",
+        "7f00000000000000000000000000000000000001",
+        "ff0000000000000000000000000000000000000f",
+        "fffffffffffffffffffffffffffffffffffffffe",
+        "ffffffffffffffffffffffffffffffffffffffff",
+    };
+
+    /** Ids of no object in a pack of IDS. */
+    private static final String[] ABSENT = {
+        "0000000000000000000000000000000000000001",
+        "8000000000000000000000000000000000000000",
+        "fffffffffffffffffffffffffffffffffffffffd",
+        "00", "",
+    };
+
+    /** Write a pack of IDS, whose objects' contents are their ids and whose
+     *  kinds alternate, to ObjectStore.PACK and return it. */
+    private Pack writeIds() {
+        TestUtils.freshRepo();
+        ObjectStore.PACK.mkdir();
+        ArrayList<Pack.Source> sources = new ArrayList<>();
+        for (int i = IDS.length - 1; i >= 0; i -= 1) {
+            File f = TestUtils.scratchFile(
+                "obj" + i, IDS[i].getBytes(StandardCharsets.UTF_8));
+            sources.add(new Pack.Source(IDS[i], kind(i), f));
+        }
+        return Pack.write(ObjectStore.PACK, sources);
+    }
+
+    /** Return the kind given to the object IDS[I]. */
+    private static byte kind(int i) {
+        return i % 2 == 0 ? Pack.COMMIT : Pack.BLOB;
+    }
+
+    /** Check that the pack whose pack file is PACKFILE cannot be opened. */
+    private static void assertRejected(File packFile) {
+        try {
+            new Pack(packFile).close();
+            fail("opened a pack with a bad index");
+        } catch (GitletException excp) {
+            return;
+        }
+    }
+
+    @Test
+    public void testWriteAndFind() {
+        Pack pack = writeIds();
+        assertEquals(IDS.length, pack.size());
+        for (int i = 0; i < IDS.length; i += 1) {
+            int at = pack.find(IDS[i], kind(i));
+            assertEquals(i, at);
+            assertEquals(IDS[i], pack.id(at));
+            assertEquals(IDS[i], new String(pack.read(at),
+                                            StandardCharsets.UTF_8));
+            byte other = kind(i) == Pack.COMMIT ? Pack.BLOB : Pack.COMMIT;
+            assertEquals(-1, pack.find(IDS[i], other));
+        }
+        for (String id : ABSENT) {
+            assertEquals(-1, pack.find(id, Pack.COMMIT));
+            assertEquals(-1, pack.find(id, Pack.BLOB));
+        }
+        assertEquals(Arrays.asList(IDS[0], IDS[2], IDS[4]),
+                     pack.ids(Pack.COMMIT));
+        pack.close();
+    }
+
+    @Test
+    public void testFindPrefix() {
+        Pack pack = writeIds();
+        assertEquals(0, pack.findPrefix("", Pack.COMMIT));
+        assertEquals(1, pack.findPrefix("", Pack.BLOB));
+        assertEquals(0, pack.findPrefix("0", Pack.COMMIT));
+        assertEquals(1, pack.findPrefix(IDS[1].substring(0, 39), Pack.BLOB));
+        assertEquals(-1,
+                     pack.findPrefix(IDS[1].substring(0, 39), Pack.COMMIT));
+        assertEquals(2, pack.findPrefix("7", Pack.COMMIT));
+        assertEquals(2, pack.findPrefix("7f0", Pack.COMMIT));
+        assertEquals(-1, pack.findPrefix("7f1", Pack.COMMIT));
+        assertEquals(-1, pack.findPrefix("8", Pack.COMMIT));
+        assertEquals(3, pack.findPrefix("ff", Pack.BLOB));
+        assertEquals(4, pack.findPrefix("f", Pack.COMMIT));
+        assertEquals(4, pack.findPrefix("fffff", Pack.COMMIT));
+        assertEquals(5, pack.findPrefix("fffff", Pack.BLOB));
+        assertEquals(5, pack.findPrefix(IDS[5], Pack.BLOB));
+        assertEquals(-1, pack.findPrefix(IDS[5] + "f", Pack.BLOB));
+        assertEquals(-1, pack.findPrefix("F", Pack.COMMIT));
+        assertEquals(-1, pack.findPrefix("g", Pack.COMMIT));
+        pack.close();
+    }
+
+    @Test
+    public void testBadIndex() throws Exception {
+        Pack pack = writeIds();
+        File index = Pack.indexFor(pack.file());
+        pack.close();
+        try (RandomAccessFile f = new RandomAccessFile(index, "rw")) {
+            f.setLength(f.length() - 1);
+        }
+        assertRejected(pack.file());
+        try (RandomAccessFile f = new RandomAccessFile(index, "rw")) {
+            f.setLength(4);
+        }
+        assertRejected(pack.file());
+        pack = writeIds();
+        try (RandomAccessFile f = new RandomAccessFile(index, "rw")) {
+            f.writeInt(0x12345678);
+        }
+        assertRejected(pack.file());
+    }
+
+    @Test
+    public void testTruncatedPack() throws Exception {
+        Pack pack = writeIds();
+        pack.close();
+        try (RandomAccessFile f = new RandomAccessFile(pack.file(), "rw")) {
+            f.setLength(f.length() - 1);
+        }
+        pack = new Pack(pack.file());
+        assertEquals(IDS[0], new String(pack.read(0),
+                                        StandardCharsets.UTF_8));
+        try {
+            pack.read(IDS.length - 1);
+            fail("read past the end of a truncated pack");
+        } catch (GitletException excp) {
+            pack.close();
+        }
+    }
+
+    @Test
+    public void testBadIdRejected() {
+        TestUtils.freshRepo();
+        ObjectStore.PACK.mkdir();
+        File f = TestUtils.scratchFile("bad", new byte[] { 1 });
+        try {
+            Pack.write(ObjectStore.PACK, List.of(
+                new Pack.Source("blob4242.tmp", Pack.BLOB, f)));
+            fail("packed an object with a bad id");
+        } catch (GitletException excp) {
+            assertEquals(0, ObjectStore.PACK.list().length);
+        }
+    }
+
+    @Test
+    public void testRepackTwice() {
+        TestUtils.freshRepo();
+        ArrayList<String> blobs = new ArrayList<>();
+        ArrayList<String> commits = new ArrayList<>();
+        String parent = null;
+        for (int i = 0; i < 20; i += 1) {
+            blobs.add(ObjectStore.writeBlob(TestUtils.scratchFile(
+                "f" + i, ("file " + i).getBytes(StandardCharsets.UTF_8))));
+            parent = TestUtils.commit("c" + i, parent, null, i).getId();
+            commits.add(parent);
+            if (i == 9) {
+                assertEquals(commits.get(3),
+                             ObjectStore.findCommit(commits.get(3)
+                                                    .substring(0, 6)));
+                assertEquals(20, ObjectStore.repack());
+            }
+        }
+        TestUtils.scratchFile(".gitlet/blob/blob4242.tmp", new byte[0]);
+        assertEquals(40, ObjectStore.repack());
+        assertEquals(List.of(), Utils.plainFilenamesIn(Repo.COMMIT));
+        assertEquals(List.of("blob4242.tmp"),
+                     Utils.plainFilenamesIn(Repo.BLOB));
+        assertEquals(2, ObjectStore.PACK.list().length);
+        ObjectStore.reset();
+        for (int i = 0; i < 20; i += 1) {
+            assertEquals("file " + i,
+                         ObjectStore.readBlobAsString(blobs.get(i)));
+            Commit c = ObjectStore.readCommit(commits.get(i));
+            assertEquals("c" + i, c.getMessage());
+            assertEquals(commits.get(i),
+                         ObjectStore.findCommit(commits.get(i)
+                                                .substring(0, 8)));
+        }
+        assertNull(ObjectStore.findCommit("nosuch"));
+        assertEquals(new ArrayList<>(new TreeSet<>(commits)),
+                     ObjectStore.commitIds());
+    }
+
+}
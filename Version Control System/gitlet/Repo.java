@@ -5,11 +5,8 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /** Has all gitlet commands and helper methods.
  * @author Vedant Bhatter
@@ -64,9 +61,9 @@ public class Repo implements Serializable {
 
         Commit commit = new Commit("initial commit",
                 null, null, new Date(0), new HashMap<>());
-        Utils.writeObject(Utils.join(COMMIT, commit.getId()), commit);
+        ObjectStore.writeCommit(commit);
         Branch branch = new Branch("master", commit.getId());
-        Utils.writeObject(Utils.join(BRANCH, "master"), branch);
+        ObjectStore.writeBranch(branch);
 
         File currBranch = Utils.join(CWD, "currentBranch");
         Utils.writeContents(currBranch, "master");
@@ -83,20 +80,17 @@ public class Repo implements Serializable {
             System.out.println("File does not exist.");
             System.exit(0);
         }
-        String id = Utils.sha1(Utils.readContents(f));
+        String id = ObjectStore.writeBlob(f);
         Branch currBranch = getCurrBranch();
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        File blob = Utils.join(BLOB, id);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
 
         if (currCommit.getFiles().containsKey(file)
                 && currCommit.getFiles().get(file).equals(id)) {
             currBranch.clearFile(file);
         } else {
             currBranch.addFile(file, id);
-            Utils.writeContents(blob, Utils.readContents(f));
         }
-        Utils.writeObject(Utils.join(BRANCH, currBranch.getName()), currBranch);
+        ObjectStore.writeBranch(currBranch);
 
     }
 
@@ -108,7 +102,7 @@ public class Repo implements Serializable {
     private static Branch getCurrBranch() {
         String name = Utils.readContentsAsString(
                 Utils.join(CWD, "currentBranch"));
-        return Utils.readObject(Utils.join(BRANCH, name), Branch.class);
+        return ObjectStore.readBranch(name);
     }
 
     /**
@@ -127,16 +121,15 @@ public class Repo implements Serializable {
             System.out.println("No changes added to the commit.");
             System.exit(0);
         }
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         Commit commit = new Commit(message, currBranch.getHead(),
                 new Date(), currCommit.getFiles(),
                 currBranch.getStagingAreaAdd(),
                 currBranch.getStagingAreaRemove());
-        Utils.writeObject(Utils.join(COMMIT, commit.getId()), commit);
+        ObjectStore.writeCommit(commit);
         currBranch.setHead(commit.getId());
         currBranch.clearStagingArea();
-        Utils.writeObject(Utils.join(BRANCH, currBranch.getName()), currBranch);
+        ObjectStore.writeBranch(currBranch);
     }
 
     /**
@@ -144,8 +137,7 @@ public class Repo implements Serializable {
      */
     public static void log() {
         Branch currBranch = getCurrBranch();
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         while (currCommit != null) {
             System.out.println("===");
             System.out.println("commit " + currCommit.getId());
@@ -157,8 +149,7 @@ public class Repo implements Serializable {
             if (currCommit.getParent() == null) {
                 break;
             }
-            currCommit = Utils.readObject(Utils.join(COMMIT,
-                    currCommit.getParent()), Commit.class);
+            currCommit = ObjectStore.readCommit(currCommit.getParent());
         }
     }
 
@@ -166,8 +157,8 @@ public class Repo implements Serializable {
      * Global log command.
      */
     public static void globalLog() {
-        for (File commit : COMMIT.listFiles()) {
-            Commit c = Utils.readObject(commit, Commit.class);
+        for (String id : ObjectStore.commitIds()) {
+            Commit c = ObjectStore.readCommit(id);
             System.out.println("===");
             System.out.println("commit " + c.getId());
             SimpleDateFormat sdf =
@@ -184,13 +175,13 @@ public class Repo implements Serializable {
      * @param commitMsg which is the commit message.
      */
     public static void find(String commitMsg) {
-        List<String> commitIds = Utils.plainFilenamesIn(COMMIT);
+        List<String> commitIds = ObjectStore.commitIds();
         if (commitIds.size() == 0) {
             return;
         }
         boolean bool = false;
         for (String id : commitIds) {
-            Commit c = Utils.readObject(Utils.join(COMMIT, id), Commit.class);
+            Commit c = ObjectStore.readCommit(id);
             if (c.getMessage().equals(commitMsg)) {
                 System.out.println(c.getId());
                 bool = true;
@@ -246,16 +237,14 @@ public class Repo implements Serializable {
      */
     public static void checkoutHead(String fileName) {
         Branch currBranch = getCurrBranch();
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         File file = new File(fileName);
         if (!currCommit.getFiles().containsKey(fileName)) {
             System.out.println("File does not exist in that commit.");
             System.exit(0);
         }
         String id = currCommit.getFiles().get(fileName);
-        File blob = Utils.join(BLOB, id);
-        Utils.writeContents(file, Utils.readContents(blob));
+        ObjectStore.copyBlob(id, file);
     }
 
     /**
@@ -266,19 +255,16 @@ public class Repo implements Serializable {
      */
     public static void checkoutCommit(String commitId, String fileName) {
         if (commitId.length() < Utils.UID_LENGTH) {
-            for (String smallID : Utils.plainFilenamesIn(COMMIT)) {
-                if (smallID.contains(commitId)) {
-                    commitId = smallID;
-                    break;
-                }
+            String fullId = ObjectStore.findCommit(commitId);
+            if (fullId != null) {
+                commitId = fullId;
             }
         }
-        if (!Utils.plainFilenamesIn(COMMIT).contains(commitId)) {
+        if (!ObjectStore.hasCommit(commitId)) {
             System.out.println("No commit with that id exists.");
             System.exit(0);
         }
-        Commit commit = Utils.readObject(Utils.join(COMMIT,
-                commitId), Commit.class);
+        Commit commit = ObjectStore.readCommit(commitId);
         if (commit == null) {
             System.out.println("No commit with that id exists.");
             System.exit(0);
@@ -289,8 +275,7 @@ public class Repo implements Serializable {
             System.exit(0);
         }
         String id = commit.getFiles().get(fileName);
-        File blob = Utils.join(BLOB, id);
-        Utils.writeContents(file, Utils.readContents(blob));
+        ObjectStore.copyBlob(id, file);
     }
 
     /**
@@ -301,8 +286,7 @@ public class Repo implements Serializable {
     public static ArrayList<String> untrackedHelper() {
         ArrayList<String> untracked = new ArrayList<String>();
         Branch currBranch = getCurrBranch();
-        Commit headCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit headCommit = ObjectStore.readCommit(currBranch.getHead());
         for (String f : Objects.requireNonNull(Utils.plainFilenamesIn(CWD))) {
             if (f.equals("currentBranch")) {
                 continue;
@@ -327,8 +311,7 @@ public class Repo implements Serializable {
             System.out.println("No need to checkout the current branch.");
             System.exit(0);
         }
-        if (!Objects.requireNonNull(Utils.plainFilenamesIn(BRANCH)).
-                contains(branchName)) {
+        if (!ObjectStore.hasBranch(branchName)) {
             System.out.println("No such branch exists.");
             System.exit(0);
         }
@@ -337,8 +320,7 @@ public class Repo implements Serializable {
                     + "delete it, or add and commit it first.");
             System.exit(0);
         }
-        Branch branchNew = Utils.readObject(Utils.join(BRANCH,
-                branchName), Branch.class);
+        Branch branchNew = ObjectStore.readBranch(branchName);
         Utils.writeContents(Utils.join(CWD, "currentBranch"), branchName);
         for (String file : Utils.plainFilenamesIn(CWD)) {
             if (file.equals("currentBranch")) {
@@ -346,13 +328,11 @@ public class Repo implements Serializable {
             }
             Utils.restrictedDelete(file);
         }
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                branchNew.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(branchNew.getHead());
         for (String file : currCommit.getFiles().keySet()) {
             String id = currCommit.getFiles().get(file);
-            File blob = Utils.join(BLOB, id);
             File fileNew = new File(file);
-            Utils.writeContents(fileNew, Utils.readContents(blob));
+            ObjectStore.copyBlob(id, fileNew);
         }
     }
 
@@ -364,8 +344,7 @@ public class Repo implements Serializable {
 
     public static void rm(String fileName) {
         Branch currBranch = getCurrBranch();
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         if (!currBranch.getStagingAreaAdd().containsKey(fileName)
                 && !currCommit.getFiles().containsKey(fileName)) {
             System.out.println("No reason to remove the file.");
@@ -377,7 +356,7 @@ public class Repo implements Serializable {
                     currCommit.getFiles().get(fileName));
             Utils.restrictedDelete(fileName);
         }
-        Utils.writeObject(Utils.join(BRANCH, currBranch.getName()), currBranch);
+        ObjectStore.writeBranch(currBranch);
     }
 
     /**
@@ -386,14 +365,12 @@ public class Repo implements Serializable {
      * @param branchName where a new branch gets created.
      */
     public static void branch(String branchName) {
-        for (File f : BRANCH.listFiles()) {
-            if (f.getName().equals(branchName)) {
-                System.out.println("A branch with that name already exists.");
-                System.exit(0);
-            }
+        if (ObjectStore.hasBranch(branchName)) {
+            System.out.println("A branch with that name already exists.");
+            System.exit(0);
         }
         Branch branch = new Branch(branchName, getCurrBranch().getHead());
-        Utils.writeObject(Utils.join(BRANCH, branchName), branch);
+        ObjectStore.writeBranch(branch);
     }
 
     /**
@@ -402,7 +379,7 @@ public class Repo implements Serializable {
      * @param branchName which is the branch that needs to get removed.
      */
     public static void rmBranch(String branchName) {
-        if (!Utils.plainFilenamesIn(BRANCH).contains(branchName)) {
+        if (!ObjectStore.hasBranch(branchName)) {
             System.out.println("A branch with that name does not exist.");
             System.exit(0);
         }
@@ -410,7 +387,7 @@ public class Repo implements Serializable {
             System.out.println("Cannot remove the current branch.");
             System.exit(0);
         }
-        Utils.join(BRANCH, branchName).delete();
+        ObjectStore.deleteBranch(branchName);
     }
 
     /**
@@ -419,7 +396,7 @@ public class Repo implements Serializable {
      * @param commitId which is the commitID which will get reset to.
      */
     public static void reset(String commitId) {
-        if (!Utils.plainFilenamesIn(COMMIT).contains(commitId)) {
+        if (!ObjectStore.hasCommit(commitId)) {
             System.out.println("No commit with that id exists.");
             System.exit(0);
         }
@@ -428,8 +405,7 @@ public class Repo implements Serializable {
                     + "delete it, or add and commit it first.");
             System.exit(0);
         }
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT, commitId),
-                Commit.class);
+        Commit currCommit = ObjectStore.readCommit(commitId);
         Branch currBranch = getCurrBranch();
 
         for (String f : (Utils.plainFilenamesIn(CWD))) {
@@ -443,12 +419,19 @@ public class Repo implements Serializable {
         }
         currBranch.setHead(commitId);
         currBranch.clearStagingArea();
-        Utils.writeObject(Utils.join(BRANCH, currBranch.getName()), currBranch);
+        ObjectStore.writeBranch(currBranch);
 
 
     }
 
 
+    /**
+     * Repack command, which moves loose commits and blobs into a pack.
+     */
+    public static void repack() {
+        ObjectStore.repack();
+    }
+
     /**
      * Splitpoint method .
      *
@@ -457,51 +440,14 @@ public class Repo implements Serializable {
      * @return the split point.
      */
     public static String splitPoint(String branch, String branch2) {
-        if (!Utils.plainFilenamesIn(BRANCH).contains(branch)
-                || !Utils.plainFilenamesIn(BRANCH).contains(branch2)) {
+        if (!ObjectStore.hasBranch(branch) || !ObjectStore.hasBranch(branch2)) {
             System.out.println("A branch with that name does not exist.");
             System.exit(0);
         }
-        Branch firstBranch = Utils.readObject(Utils.join(BRANCH, branch),
-                Branch.class);
-        Branch secondBranch = Utils.readObject(Utils.join(BRANCH, branch2),
-                Branch.class);
-        Commit firstCommit = Utils.readObject(Utils.join(COMMIT,
-                firstBranch.getHead()), Commit.class);
-        Commit secondCommit = Utils.readObject(Utils.join(COMMIT,
-                secondBranch.getHead()), Commit.class);
-        HashSet<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-        queue.add(firstCommit.getId());
-        while (!queue.isEmpty()) {
-            String curr = queue.poll();
-            visited.add(curr);
-            Commit currCommit = Utils.readObject(Utils.join(COMMIT, curr),
-                    Commit.class);
-            if (currCommit.getParent() != null) {
-                queue.add(currCommit.getParent());
-            }
-            if (currCommit.getParent2() != null) {
-                queue.add(currCommit.getParent2());
-            }
-        }
-        Queue<String> queue2 = new LinkedList<>();
-        queue2.add(secondCommit.getId());
-        while (!queue2.isEmpty()) {
-            String curr = queue2.poll();
-            if (visited.contains(curr)) {
-                return curr;
-            }
-            Commit currCommit = Utils.readObject(Utils.join(COMMIT, curr),
-                    Commit.class);
-            if (currCommit.getParent() != null) {
-                queue2.add(currCommit.getParent());
-            }
-            if (currCommit.getParent2() != null) {
-                queue2.add(currCommit.getParent2());
-            }
-        }
-        return null;
+        Branch firstBranch = ObjectStore.readBranch(branch);
+        Branch secondBranch = ObjectStore.readBranch(branch2);
+        return CommitGraph.splitPoint(firstBranch.getHead(),
+                secondBranch.getHead());
     }
 
     /**
@@ -512,15 +458,11 @@ public class Repo implements Serializable {
     public static void merge(String branchName) {
         boolean con = false;
         String split = splitPoint(getCurrBranch().getName(), branchName);
-        Commit splitCommit = Utils.readObject(Utils.join(COMMIT, split),
-                Commit.class);
+        Commit splitCommit = ObjectStore.readCommit(split);
         Branch currBranch = getCurrBranch();
-        Branch givenBranch = Utils.readObject(Utils.join(BRANCH, branchName),
-                Branch.class);
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        Commit givenCommit = Utils.readObject(Utils.join(COMMIT,
-                givenBranch.getHead()), Commit.class);
+        Branch givenBranch = ObjectStore.readBranch(branchName);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
+        Commit givenCommit = ObjectStore.readCommit(givenBranch.getHead());
         HashMap<String, String> currFiles = currCommit.getFiles();
         HashMap<String, String> givenFiles = givenCommit.getFiles();
         HashMap<String, String> splitFiles = splitCommit.getFiles();
@@ -531,8 +473,8 @@ public class Repo implements Serializable {
         for (String f : currFiles.keySet()) {
             if (!givenFiles.containsKey(f) && splitFiles.containsKey(f)) {
                 if (!currFiles.get(f).equals(splitFiles.get(f))) {
-                    con = mergeConflict(Utils.readContentsAsString(
-                            Utils.join(BLOB, currFiles.get(f))), "", f);
+                    con = mergeConflict(ObjectStore.readBlobAsString(
+                            currFiles.get(f)), "", f);
                 } else {
                     rmMerge(f);
                 }
@@ -542,23 +484,23 @@ public class Repo implements Serializable {
         for (String f : givenFiles.keySet()) {
             if (!splitFiles.containsKey(f) && !currFiles.containsKey(f)) {
                 File newFile = Utils.join(CWD, f);
-                File cFile = Utils.join(BLOB, givenFiles.get(f));
-                Utils.writeContents(newFile, Utils.readContentsAsString(cFile));
+                Utils.writeContents(newFile,
+                        ObjectStore.readBlobAsString(givenFiles.get(f)));
                 currBranch.addFile(f, givenFiles.get(f));
             }
             if (currFiles.containsKey(f) && !splitFiles.containsKey(f)) {
                 if (!currFiles.get(f).equals(givenFiles.get(f))) {
-                    con = mergeConflict(Utils.readContentsAsString(Utils.join(
-                            BLOB, currFiles.get(f))), Utils.readContentsAsString
-                            (Utils.join(BLOB, givenFiles.get(f))), f);
+                    con = mergeConflict(ObjectStore.readBlobAsString(
+                            currFiles.get(f)), ObjectStore.readBlobAsString(
+                            givenFiles.get(f)), f);
                 }
             } else if (currFiles.containsKey(f) && splitFiles.containsKey(f)) {
                 if (!currFiles.get(f).equals(givenFiles.get(f))
                         && !currFiles.get(f).equals(splitFiles.get(f))
                         && !givenFiles.get(f).equals(splitFiles.get(f))) {
-                    con = mergeConflict(Utils.readContentsAsString(Utils.join(
-                            BLOB, currFiles.get(f))), Utils.readContentsAsString
-                            (Utils.join(BLOB, givenFiles.get(f))), f);
+                    con = mergeConflict(ObjectStore.readBlobAsString(
+                            currFiles.get(f)), ObjectStore.readBlobAsString(
+                            givenFiles.get(f)), f);
                 }
             }
         }
@@ -567,7 +509,7 @@ public class Repo implements Serializable {
         }
         mergeCommit(currBranch, givenBranch);
         currBranch.setMerged(givenBranch.getName(), true);
-        Utils.writeObject(Utils.join(BRANCH, currBranch.getName()), currBranch);
+        ObjectStore.writeBranch(currBranch);
     }
 
     /**
@@ -579,14 +521,13 @@ public class Repo implements Serializable {
     private static void mergeCommit(Branch currBranch, Branch givenBranch) {
         String message = "Merged " + givenBranch.getMergeBranch()
                 + " into " + currBranch.getName() + ".";
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         Commit commit = new Commit(message, currBranch.getHead(),
                 givenBranch.getHead(),
                 new Date(), currCommit.getFiles(),
                 currBranch.getStagingAreaAdd(),
                 currBranch.getStagingAreaRemove());
-        Utils.writeObject(Utils.join(COMMIT, commit.getId()), commit);
+        ObjectStore.writeCommit(commit);
         currBranch.setHead(commit.getId());
         currBranch.clearStagingArea();
     }
@@ -598,19 +539,15 @@ public class Repo implements Serializable {
      */
     private static void addMerge(String file) {
         File f = Utils.join(CWD, file);
-        String id = Utils.sha1(Utils.readContents(f));
+        String id = ObjectStore.writeBlob(f);
         Branch currBranch = getCurrBranch();
-        String contents = Utils.readContentsAsString(f);
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        File blob = Utils.join(BLOB, id);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
 
         if (currCommit.getFiles().containsKey(file)
                 && currCommit.getFiles().get(file).equals(id)) {
             currBranch.clearFile(file);
         } else {
             currBranch.addFile(file, id);
-            Utils.writeContents(blob, Utils.readContents(f));
         }
     }
 
@@ -621,8 +558,7 @@ public class Repo implements Serializable {
      */
     public static void rmMerge(String fileName) {
         Branch currBranch = getCurrBranch();
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
         if (!currBranch.getStagingAreaAdd().containsKey(fileName)
                 && !currCommit.getFiles().containsKey(fileName)) {
             System.out.println("No reason to remove the file.");
@@ -662,15 +598,11 @@ public class Repo implements Serializable {
      */
     public static void mergeErrors(String branchName) {
         String split = splitPoint(getCurrBranch().getName(), branchName);
-        Commit splitCommit = Utils.readObject(Utils.join(COMMIT, split),
-                Commit.class);
+        Commit splitCommit = ObjectStore.readCommit(split);
         Branch currBranch = getCurrBranch();
-        Branch givenBranch = Utils.readObject(Utils.join(BRANCH, branchName),
-                Branch.class);
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        Commit givenCommit = Utils.readObject(Utils.join(COMMIT,
-                givenBranch.getHead()), Commit.class);
+        Branch givenBranch = ObjectStore.readBranch(branchName);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
+        Commit givenCommit = ObjectStore.readCommit(givenBranch.getHead());
         HashMap<String, String> currFiles = currCommit.getFiles();
         HashMap<String, String> givenFiles = givenCommit.getFiles();
         HashMap<String, String> splitFiles = splitCommit.getFiles();
@@ -678,7 +610,7 @@ public class Repo implements Serializable {
             System.out.println("Cannot merge a branch with itself.");
             System.exit(0);
         }
-        if (!Utils.plainFilenamesIn(BRANCH).contains(branchName)) {
+        if (!ObjectStore.hasBranch(branchName)) {
             System.out.println("A branch with that name does not exist.");
             System.exit(0);
         }
@@ -692,12 +624,14 @@ public class Repo implements Serializable {
                     + "delete it, or add and commit it first.");
             System.exit(0);
         }
-        if (split.equals(givenBranch.getHead())) {
+        if (CommitGraph.isAncestor(givenBranch.getHead(),
+                                   currBranch.getHead())) {
             System.out.println("Given branch is an "
                     + "ancestor of the current branch.");
             System.exit(0);
         }
-        if (split.equals(currBranch.getHead())) {
+        if (CommitGraph.isAncestor(currBranch.getHead(),
+                                   givenBranch.getHead())) {
             reset(givenBranch.getHead());
             System.out.println("Current branch fast-forwarded.");
             System.exit(0);
@@ -711,15 +645,11 @@ public class Repo implements Serializable {
      */
     public static void mergeHelper1(String f, String branchName) {
         String split = splitPoint(getCurrBranch().getName(), branchName);
-        Commit splitCommit = Utils.readObject(Utils.join(COMMIT, split),
-                Commit.class);
+        Commit splitCommit = ObjectStore.readCommit(split);
         Branch currBranch = getCurrBranch();
-        Branch givenBranch = Utils.readObject(Utils.join(BRANCH, branchName),
-                Branch.class);
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        Commit givenCommit = Utils.readObject(Utils.join(COMMIT,
-                givenBranch.getHead()), Commit.class);
+        Branch givenBranch = ObjectStore.readBranch(branchName);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
+        Commit givenCommit = ObjectStore.readCommit(givenBranch.getHead());
         HashMap<String, String> currFiles = currCommit.getFiles();
         HashMap<String, String> givenFiles = givenCommit.getFiles();
         HashMap<String, String> splitFiles = splitCommit.getFiles();
@@ -738,23 +668,19 @@ public class Repo implements Serializable {
     public static void mergeHelperTwo(String f, String branchName) {
         boolean con = false;
         String split = splitPoint(getCurrBranch().getName(), branchName);
-        Commit splitCommit = Utils.readObject(Utils.join(COMMIT, split),
-                Commit.class);
+        Commit splitCommit = ObjectStore.readCommit(split);
         Branch currBranch = getCurrBranch();
-        Branch givenBranch = Utils.readObject(Utils.join(BRANCH, branchName),
-                Branch.class);
-        Commit currCommit = Utils.readObject(Utils.join(COMMIT,
-                currBranch.getHead()), Commit.class);
-        Commit givenCommit = Utils.readObject(Utils.join(COMMIT,
-                givenBranch.getHead()), Commit.class);
+        Branch givenBranch = ObjectStore.readBranch(branchName);
+        Commit currCommit = ObjectStore.readCommit(currBranch.getHead());
+        Commit givenCommit = ObjectStore.readCommit(givenBranch.getHead());
         HashMap<String, String> currFiles = currCommit.getFiles();
         HashMap<String, String> givenFiles = givenCommit.getFiles();
         HashMap<String, String> splitFiles = splitCommit.getFiles();
         if (splitFiles.containsKey(f) && givenFiles.containsKey(f)) {
             if (!givenFiles.get(f).equals(currFiles.get(f))
                     && currFiles.get(f).equals(splitFiles.get(f))) {
-                String givenString = Utils.readContentsAsString(Utils.join(
-                        BLOB, givenFiles.get(f)));
+                String givenString = ObjectStore.readBlobAsString(
+                        givenFiles.get(f));
                 Utils.writeContents(Utils.join(CWD, f), givenString);
                 addMerge(f);
             }
@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+
+/** Utility definitions for use in unit tests.  Loading this class points
+ *  Repo at a scratch directory, deleted when the tests finish, so that
+ *  tests never touch a repository they happen to be run in.
+ *  @author Vedant Bhatter
+ */
+class TestUtils {
+
+    /** The directory the tests' repository is made in. */
+    static final File SCRATCH;
+    static {
+        try {
+            SCRATCH = Files.createTempDirectory("gitlet-test").toFile();
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+        System.setProperty("user.dir", SCRATCH.getPath());
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(() -> delete(SCRATCH)));
+    }
+
+    /** Make a new, empty .gitlet directory in SCRATCH, and forget
+     *  everything cached from the last one. */
+    static void freshRepo() {
+        if (!Repo.CWD.equals(SCRATCH)) {
+            throw new IllegalStateException("Repo was loaded before"
+                                            + " TestUtils");
+        }
+        ObjectStore.reset();
+        CommitGraph.reset();
+        delete(Repo.GITLET);
+        Repo.GITLET.mkdir();
+        Repo.COMMIT.mkdir();
+        Repo.BRANCH.mkdir();
+        Repo.BLOB.mkdir();
+    }
+
+    /** Return a new file named NAME in SCRATCH holding CONTENTS. */
+    static File scratchFile(String name, byte[] contents) {
+        File result = Utils.join(SCRATCH, name);
+        Utils.writeContents(result, contents);
+        return result;
+    }
+
+    /** Store and return a commit made at time TIME with message MESSAGE
+     *  and parents PARENT and PARENT2 (either of which may be null). */
+    static Commit commit(String message, String parent, String parent2,
+                         long time) {
+        Commit result = new Commit(message, parent, parent2, new Date(time),
+                                   new HashMap<>(), new HashMap<>(),
+                                   new HashMap<>());
+        ObjectStore.writeCommit(result);
+        return result;
+    }
+
+    /** Delete FILE and, if it is a directory, everything in it. */
+    static void delete(File file) {
+        File[] contents = file.listFiles();
+        if (contents != null) {
+            for (File f : contents) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+}
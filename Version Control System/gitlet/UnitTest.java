@@ -4,6 +4,13 @@ import ucb.junit.textui;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
 /** The suite of all JUnit tests for the gitlet package.
  *  @author
  */
@@ -12,7 +19,10 @@ public class UnitTest {
     /** Run the JUnit tests in the loa package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(UnitTest.class));
+        System.exit(textui.runClasses(UnitTest.class,
+                                      PackTest.class,
+                                      CommitGraphTest.class,
+                                      ObjectStoreTest.class));
     }
 
     /** A dummy test to avoid complaint. */
@@ -20,6 +30,36 @@ public class UnitTest {
     public void placeholderTest() {
     }
 
+    /** Check that each codec gives back what it was given, for empty,
+     *  random, repetitive and multi-block data. */
+    @Test
+    public void codecRoundTripTest() throws IOException {
+        Random random = new Random(61);
+        byte[] noise = new byte[3 * LzCodec.BLOCK + 17];
+        random.nextBytes(noise);
+        byte[] text = new byte[5 * LzCodec.BLOCK];
+        for (int i = 0; i < text.length; i += 1) {
+            text[i] = (byte) ("abcab".charAt(i % 5) + (i % 997 == 0 ? 1 : 0));
+        }
+        for (Codec codec : new Codec[] { Codec.NONE, Codec.DEFLATE,
+                                         Codec.LZ }) {
+            for (byte[] data : new byte[][] { {}, noise, text,
+                                              "a".getBytes() }) {
+                ByteArrayOutputStream packed = new ByteArrayOutputStream();
+                try (OutputStream out = codec.compress(packed)) {
+                    out.write(data);
+                }
+                try (InputStream in = codec.decompress(
+                         new ByteArrayInputStream(packed.toByteArray()))) {
+                    assertArrayEquals(data, in.readAllBytes());
+                }
+                if (data == text && codec != Codec.NONE) {
+                    assertTrue(codec.name(), packed.size() < data.length / 10);
+                }
+            }
+        }
+    }
+
 }
 
 